@@ -16,19 +16,27 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
 import com.inout.app.adapters.AttendanceAdapter;
 import com.inout.app.databinding.FragmentAdminAttendanceBinding;
 import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.CompanyConfig;
 import com.inout.app.models.User;
+import com.inout.app.utils.AttendancePager;
+import com.inout.app.utils.AttendanceRepository;
+import com.inout.app.utils.ListenerRegistry;
+import com.inout.app.utils.LocationsRepository;
+import com.inout.app.utils.TimeUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Admin view for Attendance.
  * 1. Select employee from Spinner.
  * 2. View monthly records in a CSV-style horizontal table.
+ * 3. Summary tiles (present today, still checked in, hours this month) computed with
+ *    server-side aggregate queries, scoped to the selected employee and location.
  * 
  * CRITICAL: Requires a Composite Index in Firestore Console.
  */
@@ -39,8 +47,13 @@ public class AdminAttendanceFragment extends Fragment {
     private FirebaseFirestore db;
     
     private List<User> employees;
-    private List<AttendanceRecord> attendanceLogs;
+    private List<CompanyConfig> locations;
+    private User selectedEmployee;
+    private CompanyConfig selectedLocation;
+    private int summaryGeneration = 0;   // Drops aggregate results for a previous selection
     private AttendanceAdapter adapter;
+    private AttendancePager<?> pager;
+    private ListenerRegistry listeners;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -53,16 +66,19 @@ public class AdminAttendanceFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         db = FirebaseFirestore.getInstance();
+        listeners = ListenerRegistry.bindTo(getViewLifecycleOwner());
         employees = new ArrayList<>();
-        attendanceLogs = new ArrayList<>();
+        locations = new ArrayList<>();
 
         setupRecyclerView();
+        // The summary is first computed when the employee spinner reports its initial selection
         loadEmployeeList();
+        loadLocationList();
     }
 
     private void setupRecyclerView() {
         binding.rvAttendanceTable.setLayoutManager(new LinearLayoutManager(getContext()));
-        adapter = new AttendanceAdapter(attendanceLogs);
+        adapter = new AttendanceAdapter();
         binding.rvAttendanceTable.setAdapter(adapter);
     }
 
@@ -95,6 +111,8 @@ public class AdminAttendanceFragment extends Fragment {
                 .addOnFailureListener(e -> {
                     binding.progressBar.setVisibility(View.GONE);
                     Toast.makeText(getContext(), "Error loading employees", Toast.LENGTH_SHORT).show();
+                    // No spinner callback will come: show the company-wide totals
+                    refreshSummary();
                 });
     }
 
@@ -103,19 +121,92 @@ public class AdminAttendanceFragment extends Fragment {
                 android.R.layout.simple_spinner_item, names);
         spinnerAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         binding.spinnerEmployees.setAdapter(spinnerAdapter);
+        // Keep the selected employee when the list is reloaded
+        for (int i = 0; selectedEmployee != null && i < employees.size(); i++) {
+            if (Objects.equals(employees.get(i).getEmployeeId(), selectedEmployee.getEmployeeId())) {
+                binding.spinnerEmployees.setSelection(i + 1);
+                break;
+            }
+        }
 
         binding.spinnerEmployees.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                if (position > 0) {
-                    // Offset by 1 because of the hint at position 0
-                    User selectedUser = employees.get(position - 1);
-                    loadAttendanceForEmployee(selectedUser);
+                // Offset by 1 because of the hint at position 0
+                User user = position > 0 ? employees.get(position - 1) : null;
+                // Each summary refresh is billed; skip callbacks that change nothing
+                if (summaryGeneration > 0 && Objects.equals(employeeIdOf(user), employeeIdOf(selectedEmployee))) return;
+
+                if (user != null) {
+                    selectedEmployee = user;
+                    loadAttendanceForEmployee(user);
                 } else {
-                    attendanceLogs.clear();
-                    adapter.notifyDataSetChanged();
+                    selectedEmployee = null;
+                    stopPager();
+                    adapter.submitList(null);
                     binding.tableHeader.setVisibility(View.GONE);
                 }
+                refreshSummary();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+    }
+
+    @Nullable
+    private static String employeeIdOf(@Nullable User user) {
+        return user != null ? user.getEmployeeId() : null;
+    }
+
+    /**
+     * Fills the summary's location filter from the shared cache, then again if the
+     * repository had to refresh it from the server.
+     */
+    private void loadLocationList() {
+        LocationsRepository repository = LocationsRepository.getInstance(requireContext());
+        int cachedGeneration = repository.getGeneration();
+        showLocations(repository.getAllCached());
+
+        repository.fetchAll()
+                .addOnSuccessListener(configs -> {
+                    if (binding == null || repository.getGeneration() == cachedGeneration) return;
+                    showLocations(configs);
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error loading locations", e));
+    }
+
+    private void showLocations(List<CompanyConfig> configs) {
+        locations.clear();
+        locations.addAll(configs);
+        List<String> locationNames = new ArrayList<>();
+        locationNames.add("All Locations");
+        int selection = 0;
+        for (CompanyConfig config : configs) {
+            locationNames.add(config.getName());
+            // Keep the current filter when the list is refreshed
+            if (selectedLocation != null && config.getId().equals(selectedLocation.getId())) {
+                selection = locationNames.size() - 1;
+                selectedLocation = config;
+            }
+        }
+        setupLocationSpinner(locationNames);
+        binding.spinnerSummaryLocation.setSelection(selection);
+    }
+
+    private void setupLocationSpinner(List<String> names) {
+        ArrayAdapter<String> spinnerAdapter = new ArrayAdapter<>(requireContext(),
+                android.R.layout.simple_spinner_item, names);
+        spinnerAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        binding.spinnerSummaryLocation.setAdapter(spinnerAdapter);
+
+        binding.spinnerSummaryLocation.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                CompanyConfig location = position > 0 ? locations.get(position - 1) : null;
+                if (location == selectedLocation) return;
+                selectedLocation = location;
+                refreshSummary();
             }
 
             @Override
@@ -124,53 +215,105 @@ public class AdminAttendanceFragment extends Fragment {
     }
 
     /**
-     * Loads attendance logs for a specific employee from Firestore.
+     * Recomputes the summary tiles. Each tile is one aggregation query, so the cost
+     * does not grow with the number of attendance documents that match.
+     */
+    private void refreshSummary() {
+        String employeeId = selectedEmployee != null ? selectedEmployee.getEmployeeId() : null;
+        String locationId = selectedLocation != null ? selectedLocation.getId() : null;
+        int generation = ++summaryGeneration;
+
+        binding.tvSummaryPresent.setText("--");
+        binding.tvSummaryStillIn.setText("--");
+        binding.tvSummaryMonthHours.setText("--");
+
+        AttendanceRepository repository = AttendanceRepository.getInstance(requireContext());
+
+        repository.countPresentToday(employeeId, locationId)
+                .addOnSuccessListener(count -> {
+                    if (isCurrentSummary(generation)) binding.tvSummaryPresent.setText(String.valueOf(count));
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Present-today count failed", e));
+
+        repository.countStillCheckedIn(employeeId, locationId)
+                .addOnSuccessListener(count -> {
+                    if (isCurrentSummary(generation)) binding.tvSummaryStillIn.setText(String.valueOf(count));
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Still-checked-in count failed", e));
+
+        repository.sumWorkedMinutesThisMonth(employeeId, locationId)
+                .addOnSuccessListener(minutes -> {
+                    if (isCurrentSummary(generation)) {
+                        binding.tvSummaryMonthHours.setText(TimeUtils.formatDuration(minutes.intValue()));
+                    }
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Month-to-date sum failed", e));
+    }
+
+    private boolean isCurrentSummary(int generation) {
+        return binding != null && generation == summaryGeneration;
+    }
+
+    /**
+     * Loads attendance logs for a specific employee from Firestore, one page at a time.
      * Note: This query triggers the "Error loading logs" if the Index is missing.
      */
     private void loadAttendanceForEmployee(User user) {
         if (user.getEmployeeId() == null) return;
-        
+
+        // Drop the previous employee's live listener before switching
+        stopPager();
         binding.progressBar.setVisibility(View.VISIBLE);
         
-        // Query: Filter by employeeId AND Sort by timestamp
-        db.collection("attendance")
-                .whereEqualTo("employeeId", user.getEmployeeId())
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .addSnapshotListener((value, error) -> {
-                    binding.progressBar.setVisibility(View.GONE);
-                    
-                    if (error != null) {
-                        Log.e(TAG, "Firestore error: " + error.getMessage());
-                        // This error occurs because a Composite Index is missing in Firebase
-                        Toast.makeText(getContext(), "Error loading logs. Check Indexing.", Toast.LENGTH_LONG).show();
-                        return;
-                    }
+        // Query: Filter by employeeId AND Sort newest first (daily documents or monthly shards)
+        pager = AttendanceRepository.getInstance(requireContext()).openHistory(user.getEmployeeId(),
+                new AttendancePager.Callback<AttendanceRecord>() {
+            @Override
+            public void onRecordsChanged(List<AttendanceRecord> records) {
+                if (binding == null) return;
+                binding.progressBar.setVisibility(View.GONE);
 
-                    if (value != null) {
-                        attendanceLogs.clear();
-                        for (DocumentSnapshot doc : value) {
-                            AttendanceRecord record = doc.toObject(AttendanceRecord.class);
-                            if (record != null) {
-                                attendanceLogs.add(record);
-                            }
-                        }
-                        
-                        adapter.notifyDataSetChanged();
-                        
-                        if (attendanceLogs.isEmpty()) {
-                            binding.tvNoData.setVisibility(View.VISIBLE);
-                            binding.tableHeader.setVisibility(View.GONE);
-                        } else {
-                            binding.tvNoData.setVisibility(View.GONE);
-                            binding.tableHeader.setVisibility(View.VISIBLE);
-                        }
-                    }
-                });
+                // ListAdapter keeps its own copy and diffs it in the background
+                adapter.submitList(new ArrayList<>(records));
+
+                if (records.isEmpty()) {
+                    binding.tvNoData.setVisibility(View.VISIBLE);
+                    binding.tableHeader.setVisibility(View.GONE);
+                } else {
+                    binding.tvNoData.setVisibility(View.GONE);
+                    binding.tableHeader.setVisibility(View.VISIBLE);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (binding == null) return;
+                binding.progressBar.setVisibility(View.GONE);
+                Log.e(TAG, "Firestore error: " + e.getMessage());
+                // This error occurs because a Composite Index is missing in Firebase
+                Toast.makeText(getContext(), "Error loading logs. Check Indexing.", Toast.LENGTH_LONG).show();
+            }
+        });
+        // One key for the whole screen: selecting another employee replaces the listener
+        pager.bindTo(listeners, "attendance?employee");
+        pager.attachTo(binding.rvAttendanceTable);
+        pager.start();
+    }
+
+    private void stopPager() {
+        if (pager != null) {
+            pager.stop();
+            pager.detach();
+            pager = null;
+        }
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        stopPager();
+        selectedEmployee = null;
+        selectedLocation = null;
         binding = null;
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
@@ -14,6 +15,8 @@ import androidx.navigation.ui.NavigationUI;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.inout.app.databinding.ActivityAdminDashboardBinding;
+import com.inout.app.utils.AttendanceRepository;
+import com.inout.app.utils.LocationsRepository;
 
 public class AdminDashboardActivity extends AppCompatActivity {
 
@@ -49,6 +52,8 @@ public class AdminDashboardActivity extends AppCompatActivity {
             NavigationUI.setupActionBarWithNavController(this, navController, appBarConfiguration);
             NavigationUI.setupWithNavController(binding.navView, navController);
         }
+
+        AttendanceRepository.getInstance(this).refreshStorageMode();
     }
 
     // Create the top options menu (e.g., Logout)
@@ -58,6 +63,15 @@ public class AdminDashboardActivity extends AppCompatActivity {
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        MenuItem monthly = menu.findItem(R.id.action_monthly_storage);
+        if (monthly != null) {
+            monthly.setChecked(AttendanceRepository.getInstance(this).isMonthlyMode());
+        }
+        return super.onPrepareOptionsMenu(menu);
+    }
+
     // Handle menu clicks
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
@@ -67,12 +81,16 @@ public class AdminDashboardActivity extends AppCompatActivity {
         } else if (item.getItemId() == R.id.action_switch_company) {
             switchCompany();
             return true;
+        } else if (item.getItemId() == R.id.action_monthly_storage) {
+            toggleMonthlyStorage(!item.isChecked());
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
 
     private void logout() {
         mAuth.signOut();
+        LocationsRepository.getInstance(this).clear();
         // Go back to Splash/Role Selection
         Intent intent = new Intent(this, SplashActivity.class);
         intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
@@ -80,9 +98,24 @@ public class AdminDashboardActivity extends AppCompatActivity {
         finish();
     }
 
+    /**
+     * Switches the attendance layout for all employees. Records already written in the
+     * other layout are kept but not shown while this one is active.
+     */
+    private void toggleMonthlyStorage(boolean monthly) {
+        String mode = monthly ? AttendanceRepository.MODE_MONTHLY : AttendanceRepository.MODE_DAILY;
+        AttendanceRepository.getInstance(this).setStorageMode(mode)
+                .addOnSuccessListener(aVoid -> {
+                    invalidateOptionsMenu();
+                    Toast.makeText(this, monthly ? "Attendance stored per month" : "Attendance stored per day", Toast.LENGTH_SHORT).show();
+                })
+                .addOnFailureListener(e -> Toast.makeText(this, "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+    }
+
     private void switchCompany() {
         // To switch company, we go back to the Setup screen
         mAuth.signOut();
+        LocationsRepository.getInstance(this).clear();
         Intent intent = new Intent(this, AdminSetupActivity.class);
         intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
         startActivity(intent);
@@ -5,13 +5,14 @@ import android.content.DialogInterface;
 import android.os.Bundle;
 import android.text.InputType;
 import android.util.Log;
+import android.util.SparseBooleanArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
 import android.widget.EditText;
 import android.widget.LinearLayout;
-import android.widget.Spinner;
+import android.widget.ListView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -21,7 +22,6 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.EventListener;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreException;
@@ -30,6 +30,9 @@ import com.inout.app.databinding.FragmentAdminEmployeesBinding;
 import com.inout.app.models.User;
 import com.inout.app.models.CompanyConfig;
 import com.inout.app.adapters.EmployeeListAdapter;
+import com.inout.app.utils.IndexedSnapshotList;
+import com.inout.app.utils.ListenerRegistry;
+import com.inout.app.utils.LocationsRepository;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -39,8 +42,10 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
     private static final String TAG = "AdminEmployeesFrag";
     private FragmentAdminEmployeesBinding binding;
     private FirebaseFirestore db;
+    private ListenerRegistry listeners;
     private EmployeeListAdapter adapter;
     private List<User> employeeList;
+    private IndexedSnapshotList<User> employees;
     private List<CompanyConfig> locationList; // To store office locations for the dropdown
 
     @Override
@@ -54,7 +59,13 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
         super.onViewCreated(view, savedInstanceState);
 
         db = FirebaseFirestore.getInstance();
+        listeners = ListenerRegistry.bindTo(getViewLifecycleOwner());
         employeeList = new ArrayList<>();
+        employees = new IndexedSnapshotList<>(employeeList, doc -> {
+            User user = doc.toObject(User.class);
+            user.setUid(doc.getId());
+            return user;
+        });
         locationList = new ArrayList<>();
         
         setupRecyclerView();
@@ -64,33 +75,33 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
 
     private void setupRecyclerView() {
         binding.recyclerViewEmployees.setLayoutManager(new LinearLayoutManager(getContext()));
-        adapter = new EmployeeListAdapter(getContext(), employeeList, this);
+        adapter = new EmployeeListAdapter(getContext(), this);
         binding.recyclerViewEmployees.setAdapter(adapter);
     }
 
     /**
-     * Fetches all official locations saved by the admin.
+     * Loads all official locations saved by the admin: the shared cache at once, then a
+     * server refresh only if the cache is stale.
      */
     private void fetchLocations() {
-        db.collection("locations").get().addOnSuccessListener(queryDocumentSnapshots -> {
+        LocationsRepository repository = LocationsRepository.getInstance(requireContext());
+        locationList.clear();
+        locationList.addAll(repository.getAllCached());
+
+        repository.fetchAll().addOnSuccessListener(locations -> {
             locationList.clear();
-            for (DocumentSnapshot doc : queryDocumentSnapshots) {
-                CompanyConfig loc = doc.toObject(CompanyConfig.class);
-                if (loc != null) {
-                    loc.setId(doc.getId()); // Store the document ID
-                    locationList.add(loc);
-                }
-            }
+            locationList.addAll(locations);
         }).addOnFailureListener(e -> Log.e(TAG, "Error fetching locations", e));
     }
 
     private void listenForEmployees() {
         binding.progressBar.setVisibility(View.VISIBLE);
-        db.collection("users")
+        listeners.put("users?role=employee", db.collection("users")
                 .whereEqualTo("role", "employee")
                 .addSnapshotListener(new EventListener<QuerySnapshot>() {
                     @Override
                     public void onEvent(@Nullable QuerySnapshot value, @Nullable FirebaseFirestoreException error) {
+                        if (binding == null) return;
                         binding.progressBar.setVisibility(View.GONE);
                         if (error != null) {
                             Log.e(TAG, "Listen failed.", error);
@@ -98,19 +109,13 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
                         }
 
                         if (value != null) {
-                            employeeList.clear();
-                            for (DocumentSnapshot doc : value) {
-                                User user = doc.toObject(User.class);
-                                if (user != null) {
-                                    user.setUid(doc.getId());
-                                    employeeList.add(user);
-                                }
-                            }
-                            adapter.notifyDataSetChanged();
+                            // Only the changed users are deserialized; the adapter diffs off the main thread
+                            employees.apply(value);
+                            adapter.submitList(new ArrayList<>(employeeList));
                             binding.tvEmptyView.setVisibility(employeeList.isEmpty() ? View.VISIBLE : View.GONE);
                         }
                     }
-                });
+                }));
     }
 
     @Override
@@ -135,14 +140,15 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
     }
 
     /**
-     * Updated Dialog to include a Location Selection dropdown.
+     * Approve dialog: Employee ID plus the workplace locations (one or more) the employee
+     * may check in at.
      */
     private void showApproveDialog(User user) {
         AlertDialog.Builder builder = new AlertDialog.Builder(requireContext());
         builder.setTitle("Approve " + user.getName());
-        builder.setMessage("Assign ID and choose the workplace location:");
+        builder.setMessage("Assign ID and choose the workplace locations:");
 
-        // Layout to hold the ID input and the Location Spinner
+        // Layout to hold the ID input and the Location list
         LinearLayout layout = new LinearLayout(requireContext());
         layout.setOrientation(LinearLayout.VERTICAL);
         layout.setPadding(60, 20, 60, 20);
@@ -152,25 +158,33 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
         inputId.setInputType(InputType.TYPE_CLASS_TEXT | InputType.TYPE_TEXT_FLAG_CAP_CHARACTERS);
         layout.addView(inputId);
 
-        // Spinner (Dropdown) for locations
-        final Spinner spinner = new Spinner(requireContext());
-        spinner.setPadding(0, 30, 0, 30);
+        // Multi-select list for locations (field staff rotate between sites)
+        final ListView listView = new ListView(requireContext());
+        listView.setChoiceMode(ListView.CHOICE_MODE_MULTIPLE);
         List<String> names = new ArrayList<>();
         for (CompanyConfig c : locationList) names.add(c.getName());
-        
-        ArrayAdapter<String> spinAdapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_spinner_item, names);
-        spinAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        spinner.setAdapter(spinAdapter);
-        layout.addView(spinner);
+
+        ArrayAdapter<String> listAdapter = new ArrayAdapter<>(requireContext(),
+                android.R.layout.simple_list_item_multiple_choice, names);
+        listView.setAdapter(listAdapter);
+        List<String> current = user.getAllowedLocationIds();
+        for (int i = 0; i < locationList.size(); i++) {
+            listView.setItemChecked(i, current.contains(locationList.get(i).getId()));
+        }
+        layout.addView(listView, new LinearLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, (int) (240 * getResources().getDisplayMetrics().density)));
 
         builder.setView(layout);
 
         builder.setPositiveButton("Approve", (dialog, which) -> {
             String empId = inputId.getText().toString().trim();
-            int selectedIndex = spinner.getSelectedItemPosition();
-            if (!empId.isEmpty() && selectedIndex >= 0) {
-                String locId = locationList.get(selectedIndex).getId();
-                approveUserInFirestore(user, empId, locId);
+            List<String> locIds = new ArrayList<>();
+            SparseBooleanArray checked = listView.getCheckedItemPositions();
+            for (int i = 0; i < locationList.size(); i++) {
+                if (checked.get(i)) locIds.add(locationList.get(i).getId());
+            }
+            if (!empId.isEmpty() && !locIds.isEmpty()) {
+                approveUserInFirestore(user, empId, locIds);
             } else {
                 Toast.makeText(getContext(), "Employee ID and Location are required!", Toast.LENGTH_SHORT).show();
             }
@@ -179,11 +193,12 @@ public class AdminEmployeesFragment extends Fragment implements EmployeeListAdap
         builder.show();
     }
 
-    private void approveUserInFirestore(User user, String empId, String locId) {
+    private void approveUserInFirestore(User user, String empId, List<String> locIds) {
         db.collection("users").document(user.getUid())
                 .update("approved", true, 
                         "employeeId", empId, 
-                        "assignedLocationId", locId) // CRITICAL FIX: Link the location to the user
+                        "assignedLocationId", locIds.get(0), // Primary office, read by older app versions
+                        "assignedLocationIds", locIds)
                 .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "Employee Approved and Location Assigned!", Toast.LENGTH_SHORT).show())
                 .addOnFailureListener(e -> Toast.makeText(getContext(), "Error: " + e.getMessage(), Toast.LENGTH_SHORT).show());
     }
@@ -15,29 +15,51 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.EventListener;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.MetadataChanges;
 import com.google.firebase.firestore.QuerySnapshot;
 import com.inout.app.databinding.FragmentAdminLocationsBinding;
 import com.inout.app.models.CompanyConfig;
+import com.inout.app.utils.GeoPolygon;
+import com.inout.app.utils.IndexedSnapshotList;
+import com.inout.app.utils.ListenerRegistry;
 import com.inout.app.utils.LocationHelper;
+import com.inout.app.utils.LocationsRepository;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
 public class AdminLocationsFragment extends Fragment {
 
     private static final String TAG = "AdminLocationsFrag";
+
+    // Captured points become office centres and outline corners: wait for a sharp, fresh fix
+    private static final float CAPTURE_MAX_ACCURACY_METERS = 10f;
+    private static final long CAPTURE_MAX_AGE_MS = 2000;
+    private static final long CAPTURE_TIMEOUT_MS = 30_000;
     private FragmentAdminLocationsBinding binding;
     private FirebaseFirestore db;
+    private ListenerRegistry listeners;
     private LocationHelper locationHelper;
+    private LocationHelper.Request captureRequest;
+
+    private final List<CompanyConfig> locationList = new ArrayList<>();
+    private final IndexedSnapshotList<CompanyConfig> savedLocations = new IndexedSnapshotList<>(locationList, doc -> {
+        CompanyConfig config = doc.toObject(CompanyConfig.class);
+        config.setId(doc.getId());
+        return config;
+    });
     
     private double capturedLat = 0;
     private double capturedLng = 0;
 
+    // Optional polygon outline, one captured point per corner ({lat, lng})
+    private final List<double[]> corners = new ArrayList<>();
+
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         binding = FragmentAdminLocationsBinding.inflate(inflater, container, false);
@@ -49,6 +71,7 @@ public class AdminLocationsFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         db = FirebaseFirestore.getInstance();
+        listeners = ListenerRegistry.bindTo(getViewLifecycleOwner());
         locationHelper = new LocationHelper(requireContext());
 
         setupClickListeners();
@@ -69,6 +92,13 @@ public class AdminLocationsFragment extends Fragment {
         // Original: Capture current GPS logic
         binding.btnCaptureGps.setOnClickListener(v -> captureCurrentLocation());
 
+        // Polygon outline: each captured point becomes a corner
+        binding.btnAddCorner.setOnClickListener(v -> addCorner());
+        binding.btnClearCorners.setOnClickListener(v -> {
+            corners.clear();
+            updateCornersText();
+        });
+
         // Save logic
         binding.btnSaveLocation.setOnClickListener(v -> saveLocationToFirestore());
     }
@@ -112,29 +142,62 @@ public class AdminLocationsFragment extends Fragment {
         binding.progressBar.setVisibility(View.VISIBLE);
         binding.btnCaptureGps.setEnabled(false);
 
-        locationHelper.getCurrentLocation(new LocationHelper.LocationResultCallback() {
+        LocationHelper.FixCriteria criteria = new LocationHelper.FixCriteria(
+                CAPTURE_MAX_ACCURACY_METERS, CAPTURE_MAX_AGE_MS, CAPTURE_TIMEOUT_MS);
+        final boolean[] finished = {false}; // acquireFix may answer synchronously
+        LocationHelper.Request request = locationHelper.acquireFix(criteria, new LocationHelper.FixCallback() {
             @Override
-            public void onLocationResult(Location location) {
+            public void onFix(Location location) {
+                finished[0] = true;
+                captureRequest = null;
                 binding.progressBar.setVisibility(View.GONE);
                 binding.btnCaptureGps.setEnabled(true);
 
-                if (location != null) {
-                    capturedLat = location.getLatitude();
-                    capturedLng = location.getLongitude();
-                    
-                    binding.tvCapturedCoords.setText(String.format("Current GPS:\nLat: %.6f | Lng: %.6f", capturedLat, capturedLng));
-                    binding.tvCapturedCoords.setVisibility(View.VISIBLE);
-                    Toast.makeText(getContext(), "Current Location Captured", Toast.LENGTH_SHORT).show();
-                }
+                capturedLat = location.getLatitude();
+                capturedLng = location.getLongitude();
+
+                binding.tvCapturedCoords.setText(String.format("Current GPS (±%.0fm):\nLat: %.6f | Lng: %.6f",
+                        location.getAccuracy(), capturedLat, capturedLng));
+                binding.tvCapturedCoords.setVisibility(View.VISIBLE);
+                Toast.makeText(getContext(), "Current Location Captured", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onTimeout(@Nullable Location bestSoFar) {
+                finished[0] = true;
+                captureRequest = null;
+                binding.progressBar.setVisibility(View.GONE);
+                binding.btnCaptureGps.setEnabled(true);
+                String accuracy = bestSoFar != null ? String.format(" (best ±%.0fm)", bestSoFar.getAccuracy()) : "";
+                Toast.makeText(getContext(), "GPS not accurate enough" + accuracy + ". Move to open sky and try again.",
+                        Toast.LENGTH_LONG).show();
             }
 
             @Override
             public void onError(String errorMsg) {
+                finished[0] = true;
+                captureRequest = null;
                 binding.progressBar.setVisibility(View.GONE);
                 binding.btnCaptureGps.setEnabled(true);
                 Toast.makeText(getContext(), "GPS Error: " + errorMsg, Toast.LENGTH_LONG).show();
             }
         });
+        if (!finished[0]) captureRequest = request;
+    }
+
+    private void addCorner() {
+        if (capturedLat == 0 || capturedLng == 0) {
+            Toast.makeText(getContext(), "Capture GPS at the corner first", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        corners.add(new double[]{capturedLat, capturedLng});
+        updateCornersText();
+    }
+
+    private void updateCornersText() {
+        binding.tvCorners.setText(corners.isEmpty()
+                ? "Optional: capture each building corner and tap Add Corner (3+) to use an outline instead of the 100m circle."
+                : corners.size() + " corner(s) added" + (corners.size() < 3 ? " (need at least 3)" : ""));
     }
 
     private void saveLocationToFirestore() {
@@ -145,14 +208,26 @@ public class AdminLocationsFragment extends Fragment {
             return;
         }
 
-        if (capturedLat == 0 || capturedLng == 0) {
+        boolean hasOutline = corners.size() >= 3;
+        if (!hasOutline && (capturedLat == 0 || capturedLng == 0)) {
             Toast.makeText(getContext(), "Please find a location first", Toast.LENGTH_SHORT).show();
             return;
         }
 
         binding.progressBar.setVisibility(View.VISIBLE);
 
-        CompanyConfig config = new CompanyConfig(locName, capturedLat, capturedLng);
+        CompanyConfig config;
+        if (hasOutline) {
+            // Centre and radius still describe the site for distance messages and GPS warm-up
+            GeoPolygon polygon = new GeoPolygon(corners);
+            double[] centre = polygon.centroid();
+            config = new CompanyConfig(locName, centre[0], centre[1]);
+            config.setRadius(Math.max(polygon.coveringRadius(centre[0], centre[1]), 1f));
+            config.setBoundary(GeoPolygon.encode(corners));
+        } else {
+            config = new CompanyConfig(locName, capturedLat, capturedLng);
+        }
+        config.setUpdatedAt(System.currentTimeMillis());
 
         db.collection("locations")
                 .add(config)
@@ -174,32 +249,46 @@ public class AdminLocationsFragment extends Fragment {
         binding.tvCapturedCoords.setVisibility(View.GONE);
         capturedLat = 0;
         capturedLng = 0;
+        corners.clear();
+        updateCornersText();
     }
 
     private void listenForLocations() {
-        db.collection("locations")
-                .addSnapshotListener(new EventListener<QuerySnapshot>() {
+        listeners.put("locations", db.collection("locations")
+                // INCLUDE: also called when the server confirms a cached result unchanged
+                .addSnapshotListener(MetadataChanges.INCLUDE, new EventListener<QuerySnapshot>() {
                     @Override
                     public void onEvent(@Nullable QuerySnapshot value, @Nullable FirebaseFirestoreException error) {
-                        if (error != null) return;
+                        if (error != null || binding == null) return;
 
                         if (value != null) {
+                            // Only changed locations are deserialized; the summary text is rebuilt from the cache
+                            savedLocations.apply(value);
+                            // Complete and live: keep the shared cache current for the other screens. A
+                            // snapshot from the local cache may be partial, so it must not replace anything.
+                            if (!value.getMetadata().isFromCache()) {
+                                LocationsRepository.getInstance(requireContext()).replaceAll(locationList);
+                            }
+
                             StringBuilder sb = new StringBuilder("Saved Locations:\n");
-                            for (DocumentSnapshot doc : value) {
-                                CompanyConfig config = doc.toObject(CompanyConfig.class);
-                                if (config != null) {
-                                    sb.append("- ").append(config.getName()).append("\n");
-                                }
+                            for (CompanyConfig config : locationList) {
+                                sb.append("- ").append(config.getName())
+                                        .append(config.hasBoundary() ? " (outline)" : "").append("\n");
                             }
                             binding.tvLocationList.setText(sb.toString());
                         }
                     }
-                });
+                }));
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (captureRequest != null) {
+            captureRequest.cancel();
+            captureRequest = null;
+        }
+        savedLocations.clear();
         binding = null;
     }
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import android.content.Intent;
 import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -16,20 +18,25 @@ import androidx.core.content.FileProvider;
 import androidx.fragment.app.Fragment;
 
 import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
 import com.google.zxing.MultiFormatWriter;
 import com.google.zxing.WriterException;
 import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.Encoder;
+import com.google.zxing.qrcode.encoder.QRCode;
 import com.journeyapps.barcodescanner.BarcodeEncoder;
 
 import com.inout.app.databinding.FragmentAdminQrBinding;
 import com.inout.app.utils.EncryptionHelper;
-
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.inout.app.utils.QrFountain;
+import com.inout.app.utils.QrPayloadCodec;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * Fragment responsible for generating and sharing the Company QR Code.
@@ -37,8 +44,16 @@ import java.io.IOException;
 public class AdminQrFragment extends Fragment {
 
     private static final String TAG = "AdminQrFragment";
+    // ~6 fps: slow enough for every scanner to catch most frames, fast enough to finish in seconds
+    private static final long FRAME_INTERVAL_MS = 160;
+
     private FragmentAdminQrBinding binding;
     private Bitmap generatedQrBitmap; 
+    private String qrContent;              // Current single-code payload
+    private QrFountain.Encoder fountain;   // Non-null while the animated code is showing
+    private int frameNumber;
+    private final Handler frameHandler = new Handler(Looper.getMainLooper());
+    private final Runnable nextFrame = this::showNextFrame;
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -51,6 +66,10 @@ public class AdminQrFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
 
         binding.btnGenerateQr.setOnClickListener(v -> generateCompanyQr());
+        binding.btnAnimatedQr.setOnClickListener(v -> {
+            if (fountain == null) startAnimatedQr();
+            else stopAnimatedQr();
+        });
 
         // FIXED: Using CamelCase 'btnShareQr' generated from XML ID 'btn_share_qr'
         binding.btnShareQr.setOnClickListener(v -> {
@@ -75,16 +94,13 @@ public class AdminQrFragment extends Fragment {
         }
 
         try {
-            JSONObject payload = new JSONObject();
-            payload.put("firebaseConfig", configJson);
-            payload.put("companyName", companyName);
-            payload.put("projectId", projectId);
-            payload.put("timestamp", System.currentTimeMillis());
-
-            String encryptedPayload = encryptionHelper.encryptQrPayload(payload.toString());
+            // Compact binary payload: only the fields the employee device needs
+            stopAnimatedQr();
+            qrContent = encryptionHelper.encodeRegistrationQr(new QrPayloadCodec.Registration(
+                    companyName, projectId, configJson, System.currentTimeMillis()));
 
-            if (encryptedPayload != null) {
-                generatedQrBitmap = encodeAsBitmap(encryptedPayload);
+            if (qrContent != null) {
+                generatedQrBitmap = encodeAsBitmap(qrContent);
 
                 if (generatedQrBitmap != null) {
                     binding.ivQrCode.setImageBitmap(generatedQrBitmap);
@@ -93,6 +109,7 @@ public class AdminQrFragment extends Fragment {
 
                     // FIXED: Using CamelCase 'btnShareQr'
                     binding.btnShareQr.setVisibility(View.VISIBLE); 
+                    binding.btnAnimatedQr.setVisibility(View.VISIBLE);
 
                     binding.tvInstruction.setText("Company: " + companyName);
                     Toast.makeText(getContext(), "QR Generated Successfully", Toast.LENGTH_SHORT).show();
@@ -104,6 +121,41 @@ public class AdminQrFragment extends Fragment {
         }
     }
 
+    /**
+     * Loops small fountain-coded frames of the same payload (see QrFountain). Each frame is
+     * a low-version code, so it can be scanned off this screen from across a room. A scanner
+     * present from frame 0 completes after one pass over the blocks; a late one takes about
+     * half a pass more.
+     */
+    private void startAnimatedQr() {
+        if (qrContent == null) return;
+        fountain = new QrFountain.Encoder(qrContent, QrFountain.DEFAULT_BLOCK_BYTES);
+        frameNumber = 0;
+        binding.btnAnimatedQr.setText("Show as single code");
+        binding.tvInstruction.setText("Animated code: keep this screen in front of the camera");
+        showNextFrame();
+    }
+
+    private void stopAnimatedQr() {
+        frameHandler.removeCallbacks(nextFrame);
+        if (fountain == null) return;
+        fountain = null;
+        if (binding == null) return;
+        binding.btnAnimatedQr.setText("Show as animated code");
+        if (generatedQrBitmap != null) binding.ivQrCode.setImageBitmap(generatedQrBitmap);
+        binding.tvInstruction.setText("Company: " + EncryptionHelper.getInstance(requireContext()).getCompanyName());
+    }
+
+    private void showNextFrame() {
+        if (binding == null || fountain == null) return;
+        try {
+            binding.ivQrCode.setImageBitmap(encodeAsBitmap(fountain.frame(frameNumber++)));
+        } catch (WriterException e) {
+            Log.e(TAG, "Frame encoding failed", e);
+        }
+        frameHandler.postDelayed(nextFrame, FRAME_INTERVAL_MS);
+    }
+
     private void shareQrImage() {
         try {
             // 1. Create a temporary file in the app's cache
@@ -139,9 +191,21 @@ public class AdminQrFragment extends Fragment {
     }
 
     private Bitmap encodeAsBitmap(String content) throws WriterException {
+        // The compact payload is small enough to afford medium error correction (printed posters)
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            // Second encode only to report the symbol size; skipped unless debugging
+            QRCode qrCode = Encoder.encode(content, ErrorCorrectionLevel.M, hints);
+            Log.d(TAG, "QR version " + qrCode.getVersion().getVersionNumber() + ", "
+                    + qrCode.getMatrix().getWidth() + " modules, " + content.length() + " chars, "
+                    + qrCode.getMode());
+        }
+
         MultiFormatWriter multiFormatWriter = new MultiFormatWriter();
         // QR Code Size 512x512
-        BitMatrix bitMatrix = multiFormatWriter.encode(content, BarcodeFormat.QR_CODE, 512, 512);
+        BitMatrix bitMatrix = multiFormatWriter.encode(content, BarcodeFormat.QR_CODE, 512, 512, hints);
         BarcodeEncoder barcodeEncoder = new BarcodeEncoder();
         return barcodeEncoder.createBitmap(bitMatrix);
     }
@@ -149,6 +213,7 @@ public class AdminQrFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        stopAnimatedQr();
         binding = null;
     }
 }
\ No newline at end of file
@@ -6,23 +6,61 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.inout.app.R;
 import com.inout.app.models.AttendanceRecord;
 
-import java.util.List;
+import java.util.Objects;
 
 /**
  * Adapter for displaying Attendance Records in a CSV-style table.
  * Used by AdminAttendanceFragment and EmployeeHistoryFragment.
+ *
+ * Lists are handed over with submitList(); ListAdapter diffs them on its background
+ * executor and only rebinds the rows that actually changed.
  */
-public class AttendanceAdapter extends RecyclerView.Adapter<AttendanceAdapter.AttendanceViewHolder> {
+public class AttendanceAdapter extends ListAdapter<AttendanceRecord, AttendanceAdapter.AttendanceViewHolder> {
 
-    private final List<AttendanceRecord> attendanceList;
+    private static final DiffUtil.ItemCallback<AttendanceRecord> DIFF_CALLBACK = new DiffUtil.ItemCallback<AttendanceRecord>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull AttendanceRecord oldItem, @NonNull AttendanceRecord newItem) {
+            return Objects.equals(keyOf(oldItem), keyOf(newItem));
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull AttendanceRecord oldItem, @NonNull AttendanceRecord newItem) {
+            // Only the fields that are actually rendered in the row
+            return Objects.equals(oldItem.getDate(), newItem.getDate())
+                    && oldItem.getCheckInAt() == newItem.getCheckInAt()
+                    && oldItem.getCheckOutAt() == newItem.getCheckOutAt()
+                    && oldItem.getWorkedMinutes() == newItem.getWorkedMinutes()
+                    && Objects.equals(oldItem.getCheckInTime(), newItem.getCheckInTime())
+                    && Objects.equals(oldItem.getCheckOutTime(), newItem.getCheckOutTime())
+                    && Objects.equals(oldItem.getTotalHours(), newItem.getTotalHours())
+                    && oldItem.isFingerprintVerified() == newItem.isFingerprintVerified()
+                    && oldItem.isLocationVerified() == newItem.isLocationVerified();
+        }
+    };
+
+    public AttendanceAdapter() {
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return StableIds.of(keyOf(getItem(position)));
+    }
 
-    public AttendanceAdapter(List<AttendanceRecord> attendanceList) {
-        this.attendanceList = attendanceList;
+    /**
+     * recordId is employeeId_date; older documents may lack it, so rebuild it from its parts.
+     */
+    private static String keyOf(AttendanceRecord record) {
+        if (record.getRecordId() != null) return record.getRecordId();
+        return record.getEmployeeId() + "_" + record.getDate();
     }
 
     @NonNull
@@ -35,16 +73,21 @@ public class AttendanceAdapter extends RecyclerView.Adapter<AttendanceAdapter.At
 
     @Override
     public void onBindViewHolder(@NonNull AttendanceViewHolder holder, int position) {
-        AttendanceRecord record = attendanceList.get(position);
+        AttendanceRecord record = getItem(position);
 
         // Bind data to the table columns
         holder.tvDate.setText(record.getDate());
         
-        holder.tvIn.setText(record.getCheckInTime() != null ? record.getCheckInTime() : "--:--");
+        // Display strings are derived from the stored instants (legacy records fall back to their strings)
+        String checkIn = record.getCheckInDisplay();
+        String checkOut = record.getCheckOutDisplay();
+        String total = record.getTotalHoursDisplay();
+
+        holder.tvIn.setText(checkIn != null ? checkIn : "--:--");
         
-        holder.tvOut.setText(record.getCheckOutTime() != null ? record.getCheckOutTime() : "--:--");
+        holder.tvOut.setText(checkOut != null ? checkOut : "--:--");
         
-        holder.tvTotalHours.setText(record.getTotalHours() != null ? record.getTotalHours() : "0h 00m");
+        holder.tvTotalHours.setText(total != null ? total : "0h 00m");
 
         // Optional: Verification indicator logic
         // If the record was verified by both Biometrics and GPS, we can style it
@@ -55,11 +98,6 @@ public class AttendanceAdapter extends RecyclerView.Adapter<AttendanceAdapter.At
         }
     }
 
-    @Override
-    public int getItemCount() {
-        return attendanceList.size();
-    }
-
     /**
      * ViewHolder for a single row in the attendance table.
      */
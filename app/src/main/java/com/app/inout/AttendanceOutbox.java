@@ -0,0 +1,251 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.inout.app.models.AttendanceRecord;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Durable on-device queue of check-in/out events that have not reached Firestore yet.
+ *
+ * An event is written here (encrypted, synchronously) before the UI confirms it, then
+ * flushed by AttendanceSyncWorker whenever the network allows. Events survive process
+ * death and reboots, so a check-in made in a basement without signal is never lost.
+ *
+ * An event the server refuses for good (security rules, invalid data) is marked rejected:
+ * it stays on the device so the user sees it was not synced, but is no longer pending,
+ * so it cannot hold up the events queued after it.
+ */
+public class AttendanceOutbox {
+
+    private static final String TAG = "AttendanceOutbox";
+
+    public static final String TYPE_CHECK_IN = "checkIn";
+    public static final String TYPE_CHECK_OUT = "checkOut";
+
+    /**
+     * One queued write: the full record as it should look after the event, and the storage
+     * layout (AttendanceRepository.MODE_*) it was written under. The layout is replayed as is,
+     * so a mode switch while the event waits does not send it to the other collection.
+     */
+    public static class Event {
+        public final String id;
+        public final String type;
+        @Nullable public final String storageMode; // Null for events queued by older versions
+        public final AttendanceRecord record;
+        public final boolean rejected;
+
+        Event(String id, String type, @Nullable String storageMode, AttendanceRecord record, boolean rejected) {
+            this.id = id;
+            this.type = type;
+            this.storageMode = storageMode;
+            this.record = record;
+            this.rejected = rejected;
+        }
+    }
+
+    private static AttendanceOutbox instance;
+
+    private final EncryptionHelper encryptionHelper;
+    private final List<Event> events = new ArrayList<>();
+
+    private AttendanceOutbox(Context context) {
+        encryptionHelper = EncryptionHelper.getInstance(context);
+        load();
+    }
+
+    public static synchronized AttendanceOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new AttendanceOutbox(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Appends an event and persists the queue before returning.
+     *
+     * @param storageMode Layout the event is written under (AttendanceRepository.MODE_*).
+     * @return The event id, for removing it once the write is acknowledged.
+     */
+    public synchronized String enqueue(@NonNull String type, @NonNull String storageMode,
+                                       @NonNull AttendanceRecord record) {
+        String id = UUID.randomUUID().toString();
+        events.add(new Event(id, type, storageMode, copy(record), false));
+        persist();
+        return id;
+    }
+
+    /**
+     * Snapshot of the events still to be synced, oldest first. Rejected events are left out.
+     */
+    public synchronized List<Event> pending() {
+        List<Event> pending = new ArrayList<>();
+        for (Event event : events) {
+            if (!event.rejected) pending.add(event);
+        }
+        return pending;
+    }
+
+    /**
+     * @return True if nothing is left to sync (rejected events do not count).
+     */
+    public synchronized boolean isEmpty() {
+        for (Event event : events) {
+            if (!event.rejected) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes events that were written (or found already applied) on the server.
+     */
+    public synchronized void remove(@NonNull Collection<String> eventIds) {
+        if (eventIds.isEmpty()) return;
+        for (int i = events.size() - 1; i >= 0; i--) {
+            if (eventIds.contains(events.get(i).id)) events.remove(i);
+        }
+        persist();
+    }
+
+    /**
+     * Keeps events the server refused for good, but stops syncing them.
+     */
+    public synchronized void reject(@NonNull Collection<String> eventIds) {
+        if (eventIds.isEmpty()) return;
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            if (eventIds.contains(event.id)) {
+                events.set(i, new Event(event.id, event.type, event.storageMode, event.record, true));
+            }
+        }
+        persist();
+    }
+
+    /**
+     * @return True if the newest queued event for the record was rejected by the server.
+     */
+    public synchronized boolean isRejected(@NonNull String recordId) {
+        for (int i = events.size() - 1; i >= 0; i--) {
+            Event event = events.get(i);
+            if (recordId.equals(event.record.getRecordId())) return event.rejected;
+        }
+        return false;
+    }
+
+    /**
+     * The newest queued state of a record, or null if nothing is queued for it.
+     * Used to show a pending check-in/out before the server has seen it.
+     */
+    @Nullable
+    public synchronized AttendanceRecord latestFor(@NonNull String recordId) {
+        for (int i = events.size() - 1; i >= 0; i--) {
+            AttendanceRecord record = events.get(i).record;
+            if (recordId.equals(record.getRecordId())) return copy(record);
+        }
+        return null;
+    }
+
+    private void load() {
+        String saved = encryptionHelper.getAttendanceOutbox();
+        if (saved == null) return;
+        try {
+            JSONArray array = new JSONArray(saved);
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject json = array.getJSONObject(i);
+                events.add(new Event(json.getString("id"), json.getString("type"),
+                        json.optString("storageMode", null), fromJson(json.getJSONObject("record")),
+                        json.optBoolean("rejected")));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Discarding unreadable outbox", e);
+            events.clear();
+        }
+    }
+
+    private void persist() {
+        JSONArray array = new JSONArray();
+        try {
+            for (Event event : events) {
+                JSONObject json = new JSONObject();
+                json.put("id", event.id);
+                json.put("type", event.type);
+                json.put("storageMode", event.storageMode);
+                json.put("record", toJson(event.record));
+                if (event.rejected) json.put("rejected", true);
+                array.put(json);
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to serialize outbox", e);
+            return;
+        }
+        encryptionHelper.saveAttendanceOutbox(array.toString());
+    }
+
+    private static AttendanceRecord copy(AttendanceRecord record) {
+        try {
+            return fromJson(toJson(record));
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JSONObject toJson(AttendanceRecord r) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("recordId", r.getRecordId());
+        json.put("employeeId", r.getEmployeeId());
+        json.put("employeeName", r.getEmployeeName());
+        json.put("date", r.getDate());
+        json.put("locationId", r.getLocationId());
+        json.put("checkInAt", r.getCheckInAt());
+        json.put("checkInTime", r.getCheckInTime());
+        json.put("checkInLat", r.getCheckInLat());
+        json.put("checkInLng", r.getCheckInLng());
+        json.put("checkOutAt", r.getCheckOutAt());
+        json.put("checkOutTime", r.getCheckOutTime());
+        json.put("checkOutLat", r.getCheckOutLat());
+        json.put("checkOutLng", r.getCheckOutLng());
+        json.put("workedMinutes", r.getWorkedMinutes());
+        json.put("totalHours", r.getTotalHours());
+        json.put("fingerprintVerified", r.isFingerprintVerified());
+        json.put("locationVerified", r.isLocationVerified());
+        json.put("timestamp", r.getTimestamp());
+        json.put("storageMode", r.getStorageMode());
+        return json;
+    }
+
+    private static AttendanceRecord fromJson(JSONObject json) {
+        AttendanceRecord r = new AttendanceRecord();
+        r.setRecordId(json.optString("recordId", null));
+        r.setEmployeeId(json.optString("employeeId", null));
+        r.setEmployeeName(json.optString("employeeName", null));
+        r.setDate(json.optString("date", null));
+        r.setLocationId(json.optString("locationId", null));
+        r.setCheckInAt(json.optLong("checkInAt"));
+        r.setCheckInTime(json.optString("checkInTime", null));
+        r.setCheckInLat(json.optDouble("checkInLat", 0));
+        r.setCheckInLng(json.optDouble("checkInLng", 0));
+        r.setCheckOutAt(json.optLong("checkOutAt"));
+        r.setCheckOutTime(json.optString("checkOutTime", null));
+        r.setCheckOutLat(json.optDouble("checkOutLat", 0));
+        r.setCheckOutLng(json.optDouble("checkOutLng", 0));
+        r.setWorkedMinutes(json.optInt("workedMinutes"));
+        r.setTotalHours(json.optString("totalHours", null));
+        r.setFingerprintVerified(json.optBoolean("fingerprintVerified"));
+        r.setLocationVerified(json.optBoolean("locationVerified"));
+        r.setTimestamp(json.optLong("timestamp"));
+        r.setStorageMode(json.optString("storageMode", null));
+        return r;
+    }
+}
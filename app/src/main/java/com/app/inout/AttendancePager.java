@@ -0,0 +1,217 @@
+package com.inout.app.utils;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cursor-based paged loader for attendance documents.
+ *
+ * Only the newest page is kept live with a snapshot listener (today's record changes
+ * on check-out). Older pages are fetched once with limit()/startAfter() as the user
+ * scrolls, so opening a history screen costs one page of reads instead of the
+ * employee's entire history.
+ *
+ * The live page occupies the top of the item list and is patched with per-document
+ * changes; older pages are appended below it. Items are daily AttendanceRecords or
+ * MonthlyAttendance shards, depending on the storage mode.
+ *
+ * The base query must already be ordered, e.g. orderBy("timestamp", DESCENDING).
+ */
+public class AttendancePager<T> {
+
+    private static final String TAG = "AttendancePager";
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    // Start fetching the next page when this many rows are left below the viewport
+    private static final int PREFETCH_DISTANCE = 5;
+
+    public interface Callback<T> {
+        /**
+         * Called after a live change or an appended page. The list is owned by the pager; copy it.
+         */
+        void onRecordsChanged(List<T> records);
+        void onError(Exception e);
+    }
+
+    private final Query baseQuery;
+    private final int pageSize;
+    private final IndexedSnapshotList.Mapper<T> mapper;
+    private final Callback<T> callback;
+
+    // Live page first, then older pages (loaded once and never re-read)
+    private final List<T> records = new ArrayList<>();
+    private final IndexedSnapshotList<T> livePage;
+
+    private ListenerRegistry registry;
+    private String registryKey;
+    private ListenerRegistration liveRegistration;
+    private DocumentSnapshot liveLastDoc;   // Last document of the live window
+    private DocumentSnapshot olderLastDoc;  // Cursor for the next older page
+    private boolean anchored = false;       // True once the live window is pinned with endAt()
+    private boolean loadingMore = false;
+    private boolean active = false;
+    private boolean endReached = false;
+
+    private RecyclerView attachedRecyclerView;
+    private final RecyclerView.OnScrollListener prefetchListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (dy < 0) return;
+            RecyclerView.LayoutManager lm = recyclerView.getLayoutManager();
+            if (!(lm instanceof LinearLayoutManager)) return;
+
+            int lastVisible = ((LinearLayoutManager) lm).findLastVisibleItemPosition();
+            int total = lm.getItemCount();
+            if (lastVisible >= total - PREFETCH_DISTANCE) {
+                loadNextPage();
+            }
+        }
+    };
+
+    public AttendancePager(Query baseQuery, int pageSize, IndexedSnapshotList.Mapper<T> mapper, Callback<T> callback) {
+        this.baseQuery = baseQuery;
+        this.pageSize = pageSize;
+        this.mapper = mapper;
+        this.callback = callback;
+        this.livePage = new IndexedSnapshotList<>(records, mapper);
+    }
+
+    /**
+     * Attaches the live listener for the newest page.
+     */
+    public void start() {
+        stop();
+        livePage.clear();
+        records.clear();
+        liveLastDoc = null;
+        olderLastDoc = null;
+        anchored = false;
+        endReached = false;
+        loadingMore = false;
+        active = true;
+
+        listenLive(baseQuery.limit(pageSize));
+    }
+
+    /**
+     * Hands the live listener to a lifecycle-bound registry so it can never outlive the view.
+     * The key identifies the query; a new pager under the same key replaces the old listener.
+     */
+    public void bindTo(ListenerRegistry registry, String key) {
+        this.registry = registry;
+        this.registryKey = key;
+    }
+
+    /**
+     * Prefetches the next page as the RecyclerView approaches the end of the list.
+     */
+    public void attachTo(RecyclerView recyclerView) {
+        detach();
+        attachedRecyclerView = recyclerView;
+        recyclerView.addOnScrollListener(prefetchListener);
+    }
+
+    public void detach() {
+        if (attachedRecyclerView != null) {
+            attachedRecyclerView.removeOnScrollListener(prefetchListener);
+            attachedRecyclerView = null;
+        }
+    }
+
+    /**
+     * Removes the live listener. Safe to call multiple times.
+     */
+    public void stop() {
+        active = false;
+        if (registry != null) {
+            registry.remove(registryKey);
+        } else if (liveRegistration != null) {
+            liveRegistration.remove();
+        }
+        liveRegistration = null;
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    /**
+     * Loads the next older page after the current cursor.
+     */
+    public void loadNextPage() {
+        if (!active || loadingMore || endReached) return;
+
+        if (!anchored) {
+            // The live window is still limit(pageSize). A new record at the top would push
+            // the oldest one out of it and into the gap before page two, so pin the live
+            // window to its current last document before paging past it.
+            if (liveLastDoc == null || livePage.size() < pageSize) {
+                endReached = true;
+                return;
+            }
+            anchored = true;
+            olderLastDoc = liveLastDoc;
+            livePage.beginResync();
+            listenLive(baseQuery.endAt(liveLastDoc));
+        }
+
+        loadingMore = true;
+        baseQuery.startAfter(olderLastDoc).limit(pageSize).get()
+                .addOnSuccessListener(snapshot -> {
+                    loadingMore = false;
+                    // The pager was stopped (e.g. another employee selected) while this page was in flight
+                    if (!active) return;
+                    List<DocumentSnapshot> docs = snapshot.getDocuments();
+                    if (docs.size() < pageSize) endReached = true;
+                    if (docs.isEmpty()) return;
+
+                    olderLastDoc = docs.get(docs.size() - 1);
+                    for (DocumentSnapshot doc : docs) {
+                        records.add(mapper.map(doc));
+                    }
+                    callback.onRecordsChanged(records);
+                })
+                .addOnFailureListener(e -> {
+                    loadingMore = false;
+                    Log.e(TAG, "Failed to load older page", e);
+                    callback.onError(e);
+                });
+    }
+
+    private void listenLive(Query liveQuery) {
+        if (registry == null && liveRegistration != null) liveRegistration.remove();
+
+        liveRegistration = liveQuery.addSnapshotListener((value, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Live page listener failed", error);
+                callback.onError(error);
+                return;
+            }
+            if (value != null) applyLiveSnapshot(value);
+        });
+        // Replaces (and removes) the listener previously stored under the same key
+        if (registry != null) registry.put(registryKey, liveRegistration);
+    }
+
+    private void applyLiveSnapshot(@NonNull QuerySnapshot value) {
+        livePage.apply(value);
+
+        List<DocumentSnapshot> docs = value.getDocuments();
+        liveLastDoc = docs.isEmpty() ? null : docs.get(docs.size() - 1);
+        if (!anchored) endReached = docs.size() < pageSize;
+
+        callback.onRecordsChanged(records);
+    }
+}
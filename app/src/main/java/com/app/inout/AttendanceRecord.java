@@ -1,12 +1,18 @@
 package com.inout.app.models;
 
+import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.IgnoreExtraProperties;
+import com.inout.app.utils.TimeUtils;
 
 /**
  * Model class for a daily attendance record.
  * Stored in Firestore under: attendance/{employeeId}/{dateId}
  * or in a root collection: attendance_logs (depending on query needs).
  * We will use a root collection for easier Admin queries: attendance/{recordId}
+ *
+ * Times are stored as epoch millis (checkInAt/checkOutAt) and the worked time as whole
+ * minutes, so they can be summed and range-queried. The "hh:mm a" strings are only kept
+ * for records written by older versions; display text is derived at render time.
  */
 @IgnoreExtraProperties
 public class AttendanceRecord {
@@ -15,16 +21,20 @@ public class AttendanceRecord {
     private String employeeId;
     private String employeeName;    // Denormalized for easier display in lists
     private String date;            // YYYY-MM-DD
+    private String locationId;      // Office checked in at, for per-location totals
     
-    private String checkInTime;     // Display format (e.g., 09:00 AM)
+    private long checkInAt;         // Unix millis, 0 if not checked in
+    private String checkInTime;     // Legacy display format (e.g., 09:00 AM)
     private double checkInLat;
     private double checkInLng;
     
-    private String checkOutTime;    // Display format (e.g., 05:00 PM)
+    private long checkOutAt;        // Unix millis, 0 while still checked in
+    private String checkOutTime;    // Legacy display format (e.g., 05:00 PM)
     private double checkOutLat;
     private double checkOutLng;
     
-    private String totalHours;
+    private int workedMinutes;
+    private String totalHours;      // Legacy display format (e.g., 8h 00m)
     
     // Security flags
     private boolean fingerprintVerified;
@@ -32,6 +42,8 @@ public class AttendanceRecord {
     
     private long timestamp; // Unix timestamp for sorting
 
+    private String storageMode; // Layout the record lives in (daily/monthly); set locally, not stored
+
     public AttendanceRecord() {
         // Default constructor required for Firestore
     }
@@ -45,6 +57,31 @@ public class AttendanceRecord {
         this.locationVerified = true;    // Always true if created via the app logic
     }
 
+    // Derived display values (not stored)
+
+    @Exclude
+    public boolean isCheckedOut() {
+        return checkOutAt > 0 || (checkOutTime != null && !checkOutTime.isEmpty());
+    }
+
+    @Exclude
+    public String getCheckInDisplay() {
+        if (checkInAt > 0) return TimeUtils.formatTime(checkInAt);
+        return checkInTime;
+    }
+
+    @Exclude
+    public String getCheckOutDisplay() {
+        if (checkOutAt > 0) return TimeUtils.formatTime(checkOutAt);
+        return checkOutTime;
+    }
+
+    @Exclude
+    public String getTotalHoursDisplay() {
+        if (checkInAt > 0 && checkOutAt > 0) return TimeUtils.formatDuration(workedMinutes);
+        return totalHours;
+    }
+
     // Getters and Setters
 
     public String getRecordId() {
@@ -79,6 +116,22 @@ public class AttendanceRecord {
         this.date = date;
     }
 
+    public String getLocationId() {
+        return locationId;
+    }
+
+    public void setLocationId(String locationId) {
+        this.locationId = locationId;
+    }
+
+    public long getCheckInAt() {
+        return checkInAt;
+    }
+
+    public void setCheckInAt(long checkInAt) {
+        this.checkInAt = checkInAt;
+    }
+
     public String getCheckInTime() {
         return checkInTime;
     }
@@ -103,6 +156,14 @@ public class AttendanceRecord {
         this.checkInLng = checkInLng;
     }
 
+    public long getCheckOutAt() {
+        return checkOutAt;
+    }
+
+    public void setCheckOutAt(long checkOutAt) {
+        this.checkOutAt = checkOutAt;
+    }
+
     public String getCheckOutTime() {
         return checkOutTime;
     }
@@ -127,6 +188,14 @@ public class AttendanceRecord {
         this.checkOutLng = checkOutLng;
     }
 
+    public int getWorkedMinutes() {
+        return workedMinutes;
+    }
+
+    public void setWorkedMinutes(int workedMinutes) {
+        this.workedMinutes = workedMinutes;
+    }
+
     public String getTotalHours() {
         return totalHours;
     }
@@ -158,4 +227,14 @@ public class AttendanceRecord {
     public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
     }
+
+    @Exclude
+    public String getStorageMode() {
+        return storageMode;
+    }
+
+    @Exclude
+    public void setStorageMode(String storageMode) {
+        this.storageMode = storageMode;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,450 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+import com.inout.app.models.AttendanceRecord;
+import com.inout.app.models.MonthlyAttendance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single entry point for reading and writing attendance, in either storage mode:
+ *
+ * - daily:   attendance/{employeeId}_{date}, one document per working day (original layout).
+ * - monthly: attendance_monthly/{employeeId}_{yyyy-MM}, one document per employee per month
+ *            holding a map of day -> entry. A month of history is one read instead of ~22.
+ *
+ * The mode is company-wide (settings/attendance.storageMode), chosen by the Admin and
+ * cached locally. Existing daily documents are not migrated when the mode changes.
+ * A record remembers the layout it was read from or checked in under (storageMode), and
+ * its check-out and any outbox replay go to that layout even if the mode changed since.
+ *
+ * Check-in/out writes are applied to the local Firestore cache immediately and also queued
+ * in AttendanceOutbox, which AttendanceSyncWorker flushes if the direct write is never
+ * acknowledged. The UI confirms from the local write and shows "syncing" until the server has it.
+ *
+ * Admin totals are server-side count()/sum() aggregations: each one is billed as a single
+ * read no matter how many documents match. Monthly documents carry rollup fields
+ * (lastCheckInDate, openDate, locationId, workedMinutes) so the same totals work there.
+ *
+ * CRITICAL: Monthly mode requires a Composite Index on attendance_monthly (employeeId ASC, month DESC).
+ * Scoped totals need indexes on attendance (employeeId|locationId, date) and
+ * (employeeId|locationId, date, checkOutAt); the console error links create them.
+ */
+public class AttendanceRepository {
+
+    private static final String TAG = "AttendanceRepository";
+
+    public static final String MODE_DAILY = "daily";
+    public static final String MODE_MONTHLY = "monthly";
+
+    public static final String COLLECTION_DAILY = "attendance";
+    public static final String COLLECTION_MONTHLY = "attendance_monthly";
+
+    // A monthly page of 3 documents is roughly the same number of rows as one daily page
+    private static final int MONTHS_PER_PAGE = 3;
+
+    // Sync state of today's record, as reported to TodayCallback
+    public static final int SYNCED = 0;
+    public static final int SYNCING = 1;     // Only on this device (cache write or outbox) so far
+    public static final int NOT_SYNCED = 2;  // Refused by the server; will not be retried
+
+    public interface TodayCallback {
+        /**
+         * @param syncState SYNCED, SYNCING or NOT_SYNCED.
+         */
+        void onTodayRecord(@Nullable AttendanceRecord record, int syncState);
+    }
+
+    private static AttendanceRepository instance;
+
+    private final Context appContext;
+    private final EncryptionHelper encryptionHelper;
+    private final AttendanceOutbox outbox;
+    private String storageMode;
+
+    private AttendanceRepository(Context context) {
+        appContext = context;
+        encryptionHelper = EncryptionHelper.getInstance(context);
+        outbox = AttendanceOutbox.getInstance(context);
+        String saved = encryptionHelper.getAttendanceStorageMode();
+        storageMode = saved != null ? saved : MODE_DAILY;
+    }
+
+    public static synchronized AttendanceRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new AttendanceRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public boolean isMonthlyMode() {
+        return MODE_MONTHLY.equals(storageMode);
+    }
+
+    /**
+     * The layout a record belongs to: the one it carries, else the current mode.
+     */
+    String modeOf(@Nullable String recordMode) {
+        return recordMode != null ? recordMode : storageMode;
+    }
+
+    static String otherMode(String mode) {
+        return MODE_MONTHLY.equals(mode) ? MODE_DAILY : MODE_MONTHLY;
+    }
+
+    /**
+     * Re-reads the company-wide storage mode. Called once when a dashboard opens.
+     */
+    public void refreshStorageMode() {
+        settingsDoc().get()
+                .addOnSuccessListener(doc -> {
+                    String mode = doc.getString("storageMode");
+                    storageMode = MODE_MONTHLY.equals(mode) ? MODE_MONTHLY : MODE_DAILY;
+                    encryptionHelper.saveAttendanceStorageMode(storageMode);
+                })
+                .addOnFailureListener(e -> Log.w(TAG, "Could not refresh storage mode, using " + storageMode, e));
+    }
+
+    /**
+     * Admin only: switches the storage mode for the whole company.
+     */
+    public Task<Void> setStorageMode(String mode) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("storageMode", mode);
+        return settingsDoc().set(data, SetOptions.merge())
+                .addOnSuccessListener(aVoid -> {
+                    storageMode = mode;
+                    encryptionHelper.saveAttendanceStorageMode(mode);
+                });
+    }
+
+    /**
+     * Builds a pager over one employee's history, newest first, in the current storage mode.
+     */
+    public AttendancePager<?> openHistory(String employeeId, AttendancePager.Callback<AttendanceRecord> callback) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+
+        if (!isMonthlyMode()) {
+            Query query = db.collection(COLLECTION_DAILY)
+                    .whereEqualTo("employeeId", employeeId)
+                    .orderBy("timestamp", Query.Direction.DESCENDING);
+            return new AttendancePager<>(query, AttendancePager.DEFAULT_PAGE_SIZE,
+                    doc -> doc.toObject(AttendanceRecord.class), callback);
+        }
+
+        Query query = db.collection(COLLECTION_MONTHLY)
+                .whereEqualTo("employeeId", employeeId)
+                .orderBy("month", Query.Direction.DESCENDING);
+        return new AttendancePager<>(query, MONTHS_PER_PAGE,
+                doc -> doc.toObject(MonthlyAttendance.class),
+                new AttendancePager.Callback<MonthlyAttendance>() {
+                    @Override
+                    public void onRecordsChanged(List<MonthlyAttendance> months) {
+                        List<AttendanceRecord> records = new ArrayList<>();
+                        for (MonthlyAttendance month : months) {
+                            records.addAll(month.toRecords());
+                        }
+                        callback.onRecordsChanged(records);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        callback.onError(e);
+                    }
+                });
+    }
+
+    /**
+     * Number of employees who checked in today. Either filter may be null for "all".
+     */
+    public Task<Long> countPresentToday(@Nullable String employeeId, @Nullable String locationId) {
+        String today = TimeUtils.getCurrentDateId();
+        Query query = isMonthlyMode()
+                ? monthlyCollection().whereEqualTo("lastCheckInDate", today)
+                : dailyCollection().whereEqualTo("date", today);
+        return count(scoped(query, employeeId, locationId));
+    }
+
+    /**
+     * Number of employees checked in today who have not checked out yet.
+     *
+     * Daily records written by versions without checkOutAt lack the field, and Firestore
+     * cannot match a missing field, so a record checked in today by such a version is not
+     * counted until it is checked out (which writes checkOutAt). This only affects the day
+     * employees update.
+     */
+    public Task<Long> countStillCheckedIn(@Nullable String employeeId, @Nullable String locationId) {
+        String today = TimeUtils.getCurrentDateId();
+        Query query = isMonthlyMode()
+                ? monthlyCollection().whereEqualTo("openDate", today)
+                : dailyCollection().whereEqualTo("date", today).whereEqualTo("checkOutAt", 0);
+        return count(scoped(query, employeeId, locationId));
+    }
+
+    /**
+     * Minutes worked from the first of the current month up to today.
+     * In monthly mode the location filter matches each month's latest office.
+     */
+    public Task<Long> sumWorkedMinutesThisMonth(@Nullable String employeeId, @Nullable String locationId) {
+        String today = TimeUtils.getCurrentDateId();
+        String month = TimeUtils.getMonthId(today);
+        Query query = isMonthlyMode()
+                ? monthlyCollection().whereEqualTo("month", month)
+                : dailyCollection().whereGreaterThanOrEqualTo("date", month + "-01").whereLessThanOrEqualTo("date", today);
+
+        AggregateField.SumAggregateField minutes = AggregateField.sum("workedMinutes");
+        return scoped(query, employeeId, locationId).aggregate(minutes).get(AggregateSource.SERVER)
+                .continueWith(task -> {
+                    Long total = task.getResult().getLong(minutes);
+                    return total != null ? total : 0L;
+                });
+    }
+
+    /**
+     * Listens to a single day's record. In monthly mode this watches the month document.
+     */
+    public ListenerRegistration listenToday(String employeeId, String dateId, TodayCallback callback) {
+        String recordId = employeeId + "_" + dateId;
+        // INCLUDE: also called when a local write is acknowledged, to flip "syncing" to "synced"
+        if (!isMonthlyMode()) {
+            return dailyDoc(employeeId, dateId).addSnapshotListener(MetadataChanges.INCLUDE, (snapshot, e) -> {
+                if (snapshot == null) return;
+                AttendanceRecord record = snapshot.exists() ? snapshot.toObject(AttendanceRecord.class) : null;
+                if (record != null) record.setStorageMode(MODE_DAILY);
+                deliverToday(recordId, record, snapshot.getMetadata().hasPendingWrites(), callback);
+            });
+        }
+
+        String dayKey = TimeUtils.getDayKey(dateId);
+        return monthlyDoc(employeeId, dateId).addSnapshotListener(MetadataChanges.INCLUDE, (snapshot, e) -> {
+            if (snapshot == null) return;
+            MonthlyAttendance month = snapshot.exists() ? snapshot.toObject(MonthlyAttendance.class) : null;
+            AttendanceRecord record = month != null ? month.getDays().get(dayKey) : null;
+            if (record != null) record.setStorageMode(MODE_MONTHLY);
+            deliverToday(recordId, record, snapshot.getMetadata().hasPendingWrites(), callback);
+        });
+    }
+
+    /**
+     * Reports today's record as the user last saw it: a queued check-in/out wins over the
+     * (older) cached copy until the outbox has been flushed.
+     */
+    private void deliverToday(String recordId, @Nullable AttendanceRecord cached, boolean hasPendingWrites,
+                              TodayCallback callback) {
+        AttendanceRecord pending = outbox.latestFor(recordId);
+        if (pending == null) {
+            callback.onTodayRecord(cached, hasPendingWrites ? SYNCING : SYNCED);
+            return;
+        }
+        // The outbox entry may outlive the acknowledgement by a moment; it is synced once the
+        // acknowledged copy has reached the same state
+        boolean caughtUp = cached != null && cached.isCheckedOut() == pending.isCheckedOut();
+        if (caughtUp && !hasPendingWrites) {
+            callback.onTodayRecord(pending, SYNCED);
+        } else {
+            callback.onTodayRecord(pending, outbox.isRejected(recordId) ? NOT_SYNCED : SYNCING);
+        }
+    }
+
+    /**
+     * Records a new check-in. It is queued in the outbox and written to the local Firestore
+     * cache at once, so listeners see it immediately (with pending writes) whatever the
+     * network is doing. The record must carry employeeId, date and recordId; it is written
+     * in the current mode, which is stored on it.
+     */
+    public void checkIn(@NonNull AttendanceRecord record) {
+        String mode = storageMode;
+        record.setStorageMode(mode);
+        String eventId = outbox.enqueue(AttendanceOutbox.TYPE_CHECK_IN, mode, record);
+        WriteBatch batch = FirebaseFirestore.getInstance().batch();
+        addCheckIn(batch, record, mode);
+        commitNow(eventId, batch);
+    }
+
+    /**
+     * Records a check-out. The record must already carry its check-out values. It goes to
+     * the layout the record was checked in under, not necessarily the current mode.
+     */
+    public void checkOut(@NonNull AttendanceRecord record) {
+        String mode = modeOf(record.getStorageMode());
+        record.setStorageMode(mode);
+        String eventId = outbox.enqueue(AttendanceOutbox.TYPE_CHECK_OUT, mode, record);
+        WriteBatch batch = FirebaseFirestore.getInstance().batch();
+        addCheckOut(batch, record, mode);
+        commitNow(eventId, batch);
+    }
+
+    /**
+     * Applies the write locally right away. The commit task only completes on server
+     * acknowledgement, which retires the outbox entry; until then the sync worker is the
+     * backstop (e.g. if the process dies offline).
+     */
+    private void commitNow(String eventId, WriteBatch batch) {
+        batch.commit()
+                .addOnSuccessListener(aVoid -> outbox.remove(Collections.singleton(eventId)))
+                .addOnFailureListener(e -> Log.w(TAG, "Direct write failed, left to sync worker", e));
+        AttendanceSyncWorker.schedule(appContext);
+    }
+
+    /**
+     * Server copy of one day's record in the given layout (null if absent), bypassing the
+     * local cache. Blocking; only called from the sync worker.
+     */
+    @Nullable
+    AttendanceRecord fetchServerRecord(String employeeId, String dateId, String mode) throws Exception {
+        AttendanceRecord record;
+        if (!MODE_MONTHLY.equals(mode)) {
+            DocumentSnapshot doc = Tasks.await(dailyDoc(employeeId, dateId).get(Source.SERVER), 30, TimeUnit.SECONDS);
+            record = doc.exists() ? doc.toObject(AttendanceRecord.class) : null;
+        } else {
+            DocumentSnapshot doc = Tasks.await(monthlyDoc(employeeId, dateId).get(Source.SERVER), 30, TimeUnit.SECONDS);
+            MonthlyAttendance month = doc.exists() ? doc.toObject(MonthlyAttendance.class) : null;
+            record = month != null ? month.getDays().get(TimeUtils.getDayKey(dateId)) : null;
+        }
+        if (record != null) record.setStorageMode(mode);
+        return record;
+    }
+
+    /**
+     * Writes the whole record in the given layout. Also used to replay a check-out whose
+     * check-in never reached the server, in which case the record is already closed.
+     */
+    void addCheckIn(@NonNull WriteBatch batch, @NonNull AttendanceRecord record, String mode) {
+        if (!MODE_MONTHLY.equals(mode)) {
+            batch.set(dailyDoc(record.getEmployeeId(), record.getDate()), record);
+            return;
+        }
+
+        Map<String, Object> days = new HashMap<>();
+        days.put(TimeUtils.getDayKey(record.getDate()), record);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("employeeId", record.getEmployeeId());
+        data.put("employeeName", record.getEmployeeName());
+        data.put("month", TimeUtils.getMonthId(record.getDate()));
+        data.put("timestamp", record.getTimestamp());
+        data.put("lastCheckInDate", record.getDate());
+        data.put("locationId", record.getLocationId());
+        data.put("days", days);
+        if (!record.isCheckedOut()) {
+            data.put("openDate", record.getDate());
+        } else if (record.getWorkedMinutes() > 0) {
+            data.put("workedMinutes", FieldValue.increment(record.getWorkedMinutes()));
+        }
+
+        // merge() only adds this day's entry; the rest of the month is untouched
+        batch.set(monthlyDoc(record.getEmployeeId(), record.getDate()), data, SetOptions.merge());
+    }
+
+    /**
+     * Adds the check-out fields to a record that exists on the server in the given layout.
+     */
+    void addCheckOut(@NonNull WriteBatch batch, @NonNull AttendanceRecord record, String mode) {
+        Map<String, Object> fields = checkOutFields(record);
+        if (!MODE_MONTHLY.equals(mode)) {
+            batch.update(dailyDoc(record.getEmployeeId(), record.getDate()), fields);
+            return;
+        }
+
+        // Field-path update of days.{dd}.{field}: no read, no rewrite of the other days
+        String dayKey = TimeUtils.getDayKey(record.getDate());
+        List<Object> rest = new ArrayList<>();
+        FieldPath firstPath = null;
+        Object firstValue = null;
+        for (Map.Entry<String, Object> entry : fields.entrySet()) {
+            FieldPath path = FieldPath.of("days", dayKey, entry.getKey());
+            if (firstPath == null) {
+                firstPath = path;
+                firstValue = entry.getValue();
+            } else {
+                rest.add(path);
+                rest.add(entry.getValue());
+            }
+        }
+        rest.add(FieldPath.of("timestamp"));
+        rest.add(TimeUtils.getCurrentTimestamp());
+        rest.add(FieldPath.of("openDate"));
+        rest.add(FieldValue.delete());
+        if (fields.containsKey("workedMinutes")) {
+            rest.add(FieldPath.of("workedMinutes"));
+            rest.add(FieldValue.increment(record.getWorkedMinutes()));
+        }
+
+        batch.update(monthlyDoc(record.getEmployeeId(), record.getDate()), firstPath, firstValue, rest.toArray());
+    }
+
+    /**
+     * The fields a check-out changes. Records checked in by an older version only have
+     * display strings, so they get the legacy strings instead of workedMinutes.
+     */
+    private Map<String, Object> checkOutFields(AttendanceRecord record) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("checkOutAt", record.getCheckOutAt());
+        fields.put("checkOutLat", record.getCheckOutLat());
+        fields.put("checkOutLng", record.getCheckOutLng());
+        if (record.getCheckInAt() > 0) {
+            fields.put("workedMinutes", record.getWorkedMinutes());
+        } else {
+            fields.put("checkOutTime", record.getCheckOutTime());
+            fields.put("totalHours", record.getTotalHours());
+        }
+        return fields;
+    }
+
+    private Query scoped(Query query, @Nullable String employeeId, @Nullable String locationId) {
+        if (employeeId != null) query = query.whereEqualTo("employeeId", employeeId);
+        if (locationId != null) query = query.whereEqualTo("locationId", locationId);
+        return query;
+    }
+
+    private Task<Long> count(Query query) {
+        return query.count().get(AggregateSource.SERVER)
+                .continueWith(task -> task.getResult().getCount());
+    }
+
+    private Query dailyCollection() {
+        return FirebaseFirestore.getInstance().collection(COLLECTION_DAILY);
+    }
+
+    private Query monthlyCollection() {
+        return FirebaseFirestore.getInstance().collection(COLLECTION_MONTHLY);
+    }
+
+    private DocumentReference dailyDoc(String employeeId, String dateId) {
+        return FirebaseFirestore.getInstance().collection(COLLECTION_DAILY).document(employeeId + "_" + dateId);
+    }
+
+    private DocumentReference monthlyDoc(String employeeId, String dateId) {
+        return FirebaseFirestore.getInstance().collection(COLLECTION_MONTHLY)
+                .document(employeeId + "_" + TimeUtils.getMonthId(dateId));
+    }
+
+    private DocumentReference settingsDoc() {
+        return FirebaseFirestore.getInstance().collection("settings").document("attendance");
+    }
+}
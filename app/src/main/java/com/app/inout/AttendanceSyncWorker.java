@@ -0,0 +1,215 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.WriteBatch;
+import com.inout.app.models.AttendanceRecord;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Flushes AttendanceOutbox to Firestore: the backstop for check-ins whose direct write
+ * was never acknowledged (offline, process killed).
+ *
+ * Runs only with network and commits the events of each record in their own WriteBatch,
+ * oldest record first. Before writing, each event is reconciled against the server copy
+ * of attendance/{recordId} (or its month shard), so an event that already landed, e.g.
+ * from a run that was killed after the commit, is dropped instead of written twice.
+ *
+ * Each event is replayed in the layout it was written under, not the current mode. A
+ * check-out is never dropped: if its check-in is in neither layout, the closed record is
+ * written whole.
+ *
+ * Only transient errors (UNAVAILABLE, DEADLINE_EXCEEDED, ABORTED, timeouts) are retried,
+ * with exponential backoff and at most MAX_ATTEMPTS runs; whatever is left is picked up by
+ * scheduleIfPending() on the next app start. A record the server refuses for good (e.g.
+ * PERMISSION_DENIED from security rules) has its events marked rejected in the outbox, so
+ * the records queued after it still sync.
+ */
+public class AttendanceSyncWorker extends Worker {
+
+    private static final String TAG = "AttendanceSyncWorker";
+    private static final String WORK_NAME = "attendance-sync";
+
+    // With 30 s exponential backoff (capped at 5 h by WorkManager), about a day of retries
+    private static final int MAX_ATTEMPTS = 10;
+
+    public AttendanceSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Schedules a flush as soon as the device is online. Appends to a running flush so
+     * an event queued while it is in flight is picked up by the next run.
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(AttendanceSyncWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build();
+
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    /**
+     * Re-schedules a flush for events left over from an earlier session.
+     */
+    public static void scheduleIfPending(Context context) {
+        if (!AttendanceOutbox.getInstance(context).isEmpty()) schedule(context);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        if (FirebaseApp.getApps(context).isEmpty()) {
+            // InOutApplication initialises Firebase at process start from the saved config, so
+            // there is none (or it is unreadable): retrying in this process cannot help. The
+            // events stay queued for scheduleIfPending().
+            Log.w(TAG, "Firebase not configured, giving up");
+            return Result.failure();
+        }
+
+        AttendanceOutbox outbox = AttendanceOutbox.getInstance(context);
+        AttendanceRepository repository = AttendanceRepository.getInstance(context);
+
+        List<AttendanceOutbox.Event> events = outbox.pending();
+        if (events.isEmpty()) return Result.success();
+
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        try {
+            // Direct writes from the UI (possibly persisted from an earlier process) must land
+            // first, otherwise the server reads below could miss them and replay the event
+            Tasks.await(db.waitForPendingWrites(), 60, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            return retryOrGiveUp(e);
+        }
+
+        // Events grouped by record, oldest record first
+        Map<String, List<AttendanceOutbox.Event>> byRecord = new LinkedHashMap<>();
+        for (AttendanceOutbox.Event event : events) {
+            String recordId = event.record.getRecordId();
+            List<AttendanceOutbox.Event> group = byRecord.get(recordId);
+            if (group == null) {
+                group = new ArrayList<>();
+                byRecord.put(recordId, group);
+            }
+            group.add(event);
+        }
+
+        for (List<AttendanceOutbox.Event> group : byRecord.values()) {
+            List<String> ids = new ArrayList<>();
+            for (AttendanceOutbox.Event event : group) ids.add(event.id);
+            try {
+                WriteBatch batch = db.batch();
+                reconcile(repository, batch, group);
+                Tasks.await(batch.commit(), 30, TimeUnit.SECONDS);
+                outbox.remove(ids);
+            } catch (Exception e) {
+                if (isTransient(e)) return retryOrGiveUp(e);
+                Log.e(TAG, "Server rejected " + group.get(0).record.getRecordId() + ", not retrying", e);
+                outbox.reject(ids);
+            }
+        }
+
+        // Anything queued meanwhile goes in the next run
+        if (!outbox.isEmpty()) schedule(context);
+        return Result.success();
+    }
+
+    /**
+     * Adds the writes still missing on the server for one record's events.
+     */
+    private static void reconcile(AttendanceRepository repository, WriteBatch batch,
+                                  List<AttendanceOutbox.Event> group) throws Exception {
+        AttendanceRecord first = group.get(0).record;
+        boolean firstIsCheckIn = AttendanceOutbox.TYPE_CHECK_IN.equals(group.get(0).type);
+
+        // Server state of the record and the layout it lives in, advanced as events are added
+        String mode = repository.modeOf(group.get(0).storageMode);
+        AttendanceRecord server = repository.fetchServerRecord(first.getEmployeeId(), first.getDate(), mode);
+        if (server == null && !firstIsCheckIn) {
+            // Older events carry no layout, so the check-in may be in the other one
+            String other = AttendanceRepository.otherMode(mode);
+            server = repository.fetchServerRecord(first.getEmployeeId(), first.getDate(), other);
+            if (server != null) mode = other;
+        }
+
+        for (AttendanceOutbox.Event event : group) {
+            AttendanceRecord record = event.record;
+            String recordId = record.getRecordId();
+
+            if (AttendanceOutbox.TYPE_CHECK_IN.equals(event.type)) {
+                if (server == null) {
+                    repository.addCheckIn(batch, record, mode);
+                    server = record;
+                } else {
+                    Log.d(TAG, "Check-in already on server: " + recordId);
+                }
+            } else if (server == null) {
+                // The check-in never reached the server; the event holds the whole record
+                Log.w(TAG, "Writing check-out together with its missing check-in: " + recordId);
+                repository.addCheckIn(batch, record, mode);
+                server = record;
+            } else if (!server.isCheckedOut()) {
+                repository.addCheckOut(batch, record, mode);
+                server = record;
+            } else {
+                Log.d(TAG, "Check-out already on server: " + recordId);
+            }
+        }
+    }
+
+    private Result retryOrGiveUp(Exception e) {
+        int attempt = getRunAttemptCount();
+        if (attempt + 1 >= MAX_ATTEMPTS) {
+            Log.e(TAG, "Sync attempt " + attempt + " failed, giving up until next app start", e);
+            return Result.failure();
+        }
+        Log.w(TAG, "Sync attempt " + attempt + " failed, will retry", e);
+        return Result.retry();
+    }
+
+    /**
+     * Network trouble or contention, as opposed to a write the server will never accept.
+     */
+    static boolean isTransient(Throwable e) {
+        if (e instanceof ExecutionException && e.getCause() != null) e = e.getCause();
+        if (e instanceof TimeoutException || e instanceof InterruptedException) return true;
+        if (!(e instanceof FirebaseFirestoreException)) return false;
+        switch (((FirebaseFirestoreException) e).getCode()) {
+            case UNAVAILABLE:
+            case DEADLINE_EXCEEDED:
+            case ABORTED:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
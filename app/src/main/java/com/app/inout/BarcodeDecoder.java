@@ -0,0 +1,59 @@
+package com.inout.app.utils;
+
+import androidx.annotation.Nullable;
+
+/**
+ * A QR decoding backend for live camera frames (see QrScanPipeline).
+ *
+ * Implementations: MlKitBarcodeDecoder, ZxingBarcodeDecoder, and CompositeBarcodeDecoder
+ * to race two backends or fall back from one to the other.
+ */
+public interface BarcodeDecoder {
+
+    /**
+     * A grayscale frame: the first width x height bytes of data are the luma (Y) plane,
+     * row after row with no padding. The pipeline hands over an NV21 buffer with neutral
+     * chroma, so backends that want a full image can use it as NV21 directly.
+     */
+    final class Frame {
+        public final byte[] data;
+        public final int width;
+        public final int height;
+        public final int rotationDegrees;
+
+        public Frame(byte[] data, int width, int height, int rotationDegrees) {
+            this.data = data;
+            this.width = width;
+            this.height = height;
+            this.rotationDegrees = rotationDegrees;
+        }
+    }
+
+    interface Callback {
+        /**
+         * A code was found. Called at most once, and may come before the decoder has
+         * released the frame.
+         */
+        void onFound(String rawValue);
+
+        /**
+         * The decoder is done with the frame, with or without a result. Called exactly once.
+         *
+         * @param error Set if decoding failed (as opposed to finding nothing).
+         */
+        void onDone(@Nullable Exception error);
+    }
+
+    /**
+     * Decodes the frame, synchronously or not. The frame's buffer must stay untouched until
+     * onDone().
+     */
+    void decode(Frame frame, Callback callback);
+
+    /**
+     * Short name for logs.
+     */
+    String getName();
+
+    void close();
+}
@@ -0,0 +1,160 @@
+package com.inout.app.utils;
+
+import android.location.Location;
+
+import androidx.annotation.Nullable;
+import androidx.fragment.app.FragmentActivity;
+
+/**
+ * Runs the two slow steps of a check-in side by side instead of one after the other:
+ *
+ * 1. The GPS fix is requested the moment the button is pressed.
+ * 2. The biometric prompt is shown at the same time.
+ *
+ * The callback fires once both have finished, so the user's wait is the longer of the two
+ * rather than their sum. If the biometric step is aborted the GPS request is cancelled.
+ *
+ * When the location is already known (a recent geofence ENTER), startOnSite() runs only
+ * the biometric step.
+ */
+public class CheckInPipeline {
+
+    public interface Callback {
+        /**
+         * Identity verified and a fix obtained.
+         */
+        void onReady(Location location);
+
+        /**
+         * Identity verified; still waiting for the fix. Useful to show a progress state.
+         */
+        void onAwaitingLocation();
+
+        /**
+         * A fingerprint did not match. The prompt stays open, so this is not terminal.
+         */
+        void onBiometricAttemptFailed();
+
+        void onBiometricError(String errorMsg);
+
+        void onLocationError(String errorMsg);
+
+        /**
+         * No fix met the accuracy criteria before the deadline.
+         *
+         * @param bestSoFar The most accurate recent fix, or null if none arrived.
+         */
+        void onLocationTimeout(@Nullable Location bestSoFar);
+    }
+
+    private final Callback callback;
+    private LocationHelper.Request locationRequest;
+
+    private boolean authenticated = false;
+    private Location location;
+    private String locationError;
+    private boolean locationTimedOut = false;
+    private Location bestSoFar;
+    private boolean finished = false;
+
+    private CheckInPipeline(Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Starts both steps. All callbacks arrive on the main thread.
+     */
+    public static CheckInPipeline start(FragmentActivity activity, LocationHelper locationHelper,
+                                        LocationHelper.FixCriteria criteria, Callback callback) {
+        CheckInPipeline pipeline = new CheckInPipeline(callback);
+
+        // Location first: the radio needs the head start, the prompt is instant
+        pipeline.locationRequest = locationHelper.acquireFix(criteria, new LocationHelper.FixCallback() {
+            @Override
+            public void onFix(Location location) {
+                pipeline.location = location;
+                pipeline.join();
+            }
+
+            @Override
+            public void onTimeout(@Nullable Location bestSoFar) {
+                pipeline.locationTimedOut = true;
+                pipeline.bestSoFar = bestSoFar;
+                pipeline.join();
+            }
+
+            @Override
+            public void onError(String errorMsg) {
+                pipeline.locationError = errorMsg;
+                pipeline.join();
+            }
+        });
+
+        pipeline.authenticate(activity);
+        return pipeline;
+    }
+
+    /**
+     * Biometric step only, with a location the caller already trusts.
+     */
+    public static CheckInPipeline startOnSite(FragmentActivity activity, Location knownLocation, Callback callback) {
+        CheckInPipeline pipeline = new CheckInPipeline(callback);
+        pipeline.location = knownLocation;
+        pipeline.authenticate(activity);
+        return pipeline;
+    }
+
+    private void authenticate(FragmentActivity activity) {
+        final CheckInPipeline pipeline = this;
+        BiometricHelper.authenticate(activity, new BiometricHelper.BiometricCallback() {
+            @Override
+            public void onAuthenticationSuccess() {
+                pipeline.authenticated = true;
+                if (!pipeline.finished && pipeline.location == null && pipeline.locationError == null
+                        && !pipeline.locationTimedOut) {
+                    callback.onAwaitingLocation();
+                }
+                pipeline.join();
+            }
+
+            @Override
+            public void onAuthenticationError(String errorMsg) {
+                if (pipeline.finished) return;
+                pipeline.cancel();
+                callback.onBiometricError(errorMsg);
+            }
+
+            @Override
+            public void onAuthenticationFailed() {
+                if (!pipeline.finished) callback.onBiometricAttemptFailed();
+            }
+        });
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Abandons the pipeline (e.g. the view is going away). No callback fires afterwards.
+     */
+    public void cancel() {
+        finished = true;
+        if (locationRequest != null) locationRequest.cancel();
+    }
+
+    private void join() {
+        if (finished || !authenticated) return;
+
+        if (location != null) {
+            finished = true;
+            callback.onReady(location);
+        } else if (locationError != null) {
+            finished = true;
+            callback.onLocationError(locationError);
+        } else if (locationTimedOut) {
+            finished = true;
+            callback.onLocationTimeout(bestSoFar);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.inout.app.models;
 
+import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.IgnoreExtraProperties;
 
 /**
@@ -14,6 +15,8 @@ public class CompanyConfig {
     private double latitude;
     private double longitude;
     private float radius;       // Allowed radius in meters (default 100)
+    private String boundary;    // Optional polygon outline, encoded polyline; replaces the circle when set
+    private long updatedAt;     // Millis of the last edit; version stamp for cached copies
 
     public CompanyConfig() {
         // Default constructor required for Firestore
@@ -68,4 +71,25 @@ public class CompanyConfig {
     public void setRadius(float radius) {
         this.radius = radius;
     }
-}
\ No newline at end of file
+
+    public String getBoundary() {
+        return boundary;
+    }
+
+    public void setBoundary(String boundary) {
+        this.boundary = boundary;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Exclude
+    public boolean hasBoundary() {
+        return boundary != null && !boundary.isEmpty();
+    }
+}
@@ -0,0 +1,96 @@
+package com.inout.app.utils;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Combines two backends:
+ *
+ * - RACE:     both decode the frame; the first code found wins. The frame is released once
+ *             both are done. Costs a second decoder's CPU per frame, so for fast devices.
+ *             Put a synchronous backend first so the other one overlaps with it.
+ * - FALLBACK: the second backend only sees frames the first found nothing in. Put the
+ *             cheaper backend first.
+ */
+public class CompositeBarcodeDecoder implements BarcodeDecoder {
+
+    public static final int RACE = 0;
+    public static final int FALLBACK = 1;
+
+    private final int mode;
+    private final BarcodeDecoder first;
+    private final BarcodeDecoder second;
+
+    public CompositeBarcodeDecoder(int mode, BarcodeDecoder first, BarcodeDecoder second) {
+        this.mode = mode;
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public void decode(Frame frame, Callback callback) {
+        if (mode == RACE) {
+            race(frame, callback);
+        } else {
+            fallback(frame, callback);
+        }
+    }
+
+    private void race(Frame frame, Callback callback) {
+        AtomicBoolean found = new AtomicBoolean(false);
+        AtomicInteger pending = new AtomicInteger(2);
+        AtomicInteger failures = new AtomicInteger(0);
+
+        Callback shared = new Callback() {
+            @Override
+            public void onFound(String rawValue) {
+                if (found.compareAndSet(false, true)) callback.onFound(rawValue);
+            }
+
+            @Override
+            public void onDone(@Nullable Exception error) {
+                if (error != null) failures.incrementAndGet();
+                if (pending.decrementAndGet() > 0) return;
+                // Only an error if neither backend could process the frame
+                callback.onDone(failures.get() == 2 ? error : null);
+            }
+        };
+        // Second one first: if it is asynchronous it runs while a synchronous first backend works
+        second.decode(frame, shared);
+        first.decode(frame, shared);
+    }
+
+    private void fallback(Frame frame, Callback callback) {
+        first.decode(frame, new Callback() {
+            private boolean found = false;
+
+            @Override
+            public void onFound(String rawValue) {
+                found = true;
+                callback.onFound(rawValue);
+            }
+
+            @Override
+            public void onDone(@Nullable Exception error) {
+                if (found) {
+                    callback.onDone(null);
+                } else {
+                    second.decode(frame, callback);
+                }
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        return first.getName() + (mode == RACE ? "|" : ">") + second.getName();
+    }
+
+    @Override
+    public void close() {
+        first.close();
+        second.close();
+    }
+}
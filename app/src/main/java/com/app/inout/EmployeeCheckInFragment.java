@@ -1,6 +1,10 @@
 package com.inout.app;
 
+import android.Manifest;
+import android.app.AlertDialog;
+import android.content.pm.PackageManager;
 import android.location.Location;
+import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -8,20 +12,32 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
 import com.inout.app.databinding.FragmentEmployeeCheckinBinding;
 import com.inout.app.models.AttendanceRecord;
 import com.inout.app.models.CompanyConfig;
 import com.inout.app.models.User;
-import com.inout.app.utils.BiometricHelper;
+import com.inout.app.utils.AttendanceRepository;
+import com.inout.app.utils.CheckInPipeline;
+import com.inout.app.utils.EncryptionHelper;
+import com.inout.app.utils.GeofenceIndex;
+import com.inout.app.utils.GeofenceMonitor;
+import com.inout.app.utils.ListenerRegistry;
 import com.inout.app.utils.LocationHelper;
+import com.inout.app.utils.LocationSessionManager;
+import com.inout.app.utils.LocationsRepository;
 import com.inout.app.utils.TimeUtils;
+import com.inout.app.utils.UserProfileStore;
+
+import java.util.List;
+import java.util.Locale;
 
 /**
  * Fragment where employees perform Check-In and Check-Out.
@@ -30,15 +46,41 @@ import com.inout.app.utils.TimeUtils;
 public class EmployeeCheckInFragment extends Fragment {
 
     private static final String TAG = "CheckInFrag";
+
+    // Borderline refinement: a fresh, sharper fix within a few seconds, or decide without it
+    private static final float REFINE_MIN_ACCURACY_METERS = 5f;
+    private static final long REFINE_MAX_AGE_MS = 2_000;
+    private static final long REFINE_TIMEOUT_MS = 8_000;
+
     private FragmentEmployeeCheckinBinding binding;
     
-    private FirebaseFirestore db;
     private FirebaseAuth mAuth;
     private LocationHelper locationHelper;
+    private AttendanceRepository attendanceRepository;
+    private LocationsRepository locationsRepository;
+    private ListenerRegistry listeners;
     
     private User currentUser;
-    private CompanyConfig assignedLocation;
+    private CompanyConfig assignedLocation;     // Primary office
+    private GeofenceIndex geofenceIndex;        // All offices the employee may check in at
+    private List<String> allowedLocationIds;    // Ids the index was built from
+    private int sitesGeneration = -1;           // LocationsRepository generation the index reflects
     private AttendanceRecord todayRecord;
+    private String todayRecordId; // Record the today-listener is attached to
+    private int todaySyncState = AttendanceRepository.SYNCED;
+    private CheckInPipeline pipeline;   // Biometric + GPS of the current tap
+    private LocationHelper.Request refinement; // Extra fix for a borderline verdict
+    private LocationHelper.Request warmUp; // GPS warm-up while the screen is visible
+    private List<CompanyConfig> sites;     // Offices last registered as geofences
+
+    // Geofences only fire on Android 10+ with "Allow all the time"; asked once, with a rationale
+    private final ActivityResultLauncher<String> backgroundLocationLauncher = registerForActivityResult(
+            new ActivityResultContracts.RequestPermission(),
+            granted -> {
+                if (granted && sites != null && getContext() != null) {
+                    GeofenceMonitor.getInstance(requireContext()).register(sites);
+                }
+            });
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
@@ -50,9 +92,11 @@ public class EmployeeCheckInFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        db = FirebaseFirestore.getInstance();
         mAuth = FirebaseAuth.getInstance();
+        listeners = ListenerRegistry.bindTo(getViewLifecycleOwner());
         locationHelper = new LocationHelper(requireContext());
+        attendanceRepository = AttendanceRepository.getInstance(requireContext());
+        locationsRepository = LocationsRepository.getInstance(requireContext());
 
         // Initial UI State
         binding.btnCheckIn.setEnabled(false);
@@ -65,46 +109,120 @@ public class EmployeeCheckInFragment extends Fragment {
     }
 
     /**
-     * Fetches user profile to display real Name/ID and retrieve the office assignment.
+     * Observes the shared user profile to display real Name/ID and retrieve the office assignment.
      */
     private void loadUserDataAndStatus() {
         if (mAuth.getCurrentUser() == null) return;
-        String uid = mAuth.getCurrentUser().getUid();
         
-        // Listen for profile changes (Approval, Name updates, Location assignment)
-        db.collection("users").document(uid).addSnapshotListener((doc, error) -> {
-            if (error != null || doc == null || !doc.exists()) return;
-
-            currentUser = doc.toObject(User.class);
-            if (currentUser != null) {
-                // FIXED: Replace XML placeholders with live database data
-                binding.tvEmployeeName.setText(currentUser.getName() != null ? currentUser.getName() : "Unknown User");
-                binding.tvEmployeeId.setText(currentUser.getEmployeeId() != null ? currentUser.getEmployeeId() : "Pending ID");
-
-                // Check if Admin has assigned a location ID (e.g., the ID for Canara Bank)
-                if (currentUser.getAssignedLocationId() != null && !currentUser.getAssignedLocationId().isEmpty()) {
-                    fetchAssignedLocationDetails(currentUser.getAssignedLocationId());
-                } else {
-                    binding.tvStatus.setText("Status: Waiting for Admin to assign an office location.");
-                }
-                
-                // Also load today's attendance state
-                loadTodayAttendance();
+        // Profile changes (Approval, Name updates, Location assignment) arrive through the shared store
+        UserProfileStore.getInstance().observe(getViewLifecycleOwner(), user -> {
+            if (user == null) return;
+
+            currentUser = user;
+            // FIXED: Replace XML placeholders with live database data
+            binding.tvEmployeeName.setText(currentUser.getName() != null ? currentUser.getName() : "Unknown User");
+            binding.tvEmployeeId.setText(currentUser.getEmployeeId() != null ? currentUser.getEmployeeId() : "Pending ID");
+
+            // Check if Admin has assigned location IDs (e.g., the ID for Canara Bank)
+            List<String> locationIds = currentUser.getAllowedLocationIds();
+            if (!locationIds.isEmpty()) {
+                // Name/phone updates must not refetch the sites
+                if (!locationIds.equals(allowedLocationIds)) fetchAssignedLocationDetails(locationIds);
+            } else {
+                binding.tvStatus.setText("Status: Waiting for Admin to assign an office location.");
             }
+            
+            // Also load today's attendance state
+            loadTodayAttendance();
         });
     }
 
     /**
-     * Retrieves the Lat/Lng and name of the specific office assigned to this employee.
+     * Resolves every office this employee may check in at and indexes them. The first id is
+     * the primary office shown on the status line.
+     *
+     * Cached offices are applied at once (so a cold start enables the buttons without
+     * waiting for the network); the repository then refreshes them if they are stale.
+     * If the fetch fails with nothing applied, the ids are forgotten so the next profile
+     * event fetches again, and the status line offers a retry.
      */
-    private void fetchAssignedLocationDetails(String locId) {
-        db.collection("locations").document(locId).get().addOnSuccessListener(doc -> {
-            assignedLocation = doc.toObject(CompanyConfig.class);
-            if (assignedLocation != null) {
-                Log.d(TAG, "Office Assigned: " + assignedLocation.getName());
-                updateUIBasedOnStatus();
-            }
-        }).addOnFailureListener(e -> Log.e(TAG, "Failed to fetch location info", e));
+    private void fetchAssignedLocationDetails(List<String> locationIds) {
+        allowedLocationIds = locationIds;
+        sitesGeneration = -1;
+        binding.tvStatus.setOnClickListener(null);
+
+        List<CompanyConfig> cached = locationsRepository.getCached(locationIds);
+        if (cached.size() == locationIds.size()) applySites(locationIds, cached);
+
+        locationsRepository.fetch(locationIds).addOnSuccessListener(sites -> {
+            if (binding == null || !locationIds.equals(allowedLocationIds)) return;
+            if (locationsRepository.getGeneration() != sitesGeneration) applySites(locationIds, sites);
+        }).addOnFailureListener(e -> {
+            Log.e(TAG, "Failed to fetch location info", e);
+            if (binding == null || !locationIds.equals(allowedLocationIds) || sitesGeneration != -1) return;
+            allowedLocationIds = null;
+            binding.tvStatus.setText("Status: Could not load your office location. Tap to retry.");
+            binding.tvStatus.setOnClickListener(v -> fetchAssignedLocationDetails(locationIds));
+        });
+    }
+
+    private void applySites(List<String> locationIds, List<CompanyConfig> sites) {
+        if (sites.isEmpty()) return;
+        sitesGeneration = locationsRepository.getGeneration();
+
+        geofenceIndex = new GeofenceIndex(sites);
+        // Let the OS tell us when the employee arrives, before the button is tapped
+        this.sites = sites;
+        GeofenceMonitor.getInstance(requireContext()).register(sites);
+        maybeAskForBackgroundLocation();
+        assignedLocation = sites.get(0);
+        for (CompanyConfig site : sites) {
+            if (site.getId().equals(locationIds.get(0))) assignedLocation = site;
+        }
+        Log.d(TAG, "Office Assigned: " + assignedLocation.getName() + " (+" + (sites.size() - 1) + " more)");
+        updateUIBasedOnStatus();
+        // The offices may have changed: retarget the warm-up
+        stopWarmUp();
+        if (isResumed()) startWarmUp();
+    }
+
+    /**
+     * Explains, once, why background location helps and then asks for it. Declining only
+     * means check-in always takes a fresh GPS fix. On Android 11+ the system shows its own
+     * settings screen for this permission.
+     */
+    private void maybeAskForBackgroundLocation() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) return;
+        if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) return;
+        if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.ACCESS_BACKGROUND_LOCATION)
+                == PackageManager.PERMISSION_GRANTED) return;
+
+        EncryptionHelper encryptionHelper = EncryptionHelper.getInstance(requireContext());
+        if (encryptionHelper.wasBackgroundLocationAsked()) return;
+        encryptionHelper.setBackgroundLocationAsked();
+
+        new AlertDialog.Builder(requireContext())
+                .setTitle("Faster check-in at the office")
+                .setMessage("Allow location access \"all the time\" so the app can notice when you arrive at your office "
+                        + "and skip the GPS wait at check-in. Location is only used to detect your assigned offices.")
+                .setPositiveButton("Continue", (dialog, which) ->
+                        backgroundLocationLauncher.launch(Manifest.permission.ACCESS_BACKGROUND_LOCATION))
+                .setNegativeButton("Not now", null)
+                .show();
+    }
+
+    /**
+     * The office the employee is most likely checking in at: the allowed site nearest to
+     * the latest shared fix, or the primary office when there is no fix yet.
+     */
+    private CompanyConfig expectedSite() {
+        Location lastFix = LocationSessionManager.getInstance(requireContext()).getLastFix();
+        if (lastFix != null && geofenceIndex != null) {
+            CompanyConfig nearest = geofenceIndex.nearest(lastFix.getLatitude(), lastFix.getLongitude());
+            if (nearest != null) return nearest;
+        }
+        return assignedLocation;
     }
 
     private void loadTodayAttendance() {
@@ -113,18 +231,19 @@ public class EmployeeCheckInFragment extends Fragment {
         String dateId = TimeUtils.getCurrentDateId();
         String recordId = currentUser.getEmployeeId() + "_" + dateId;
 
-        db.collection("attendance").document(recordId).addSnapshotListener((snapshot, e) -> {
-            if (snapshot != null && snapshot.exists()) {
-                todayRecord = snapshot.toObject(AttendanceRecord.class);
-            } else {
-                todayRecord = null;
-            }
+        // Profile updates call this again; keep the existing listener unless the record changed
+        if (recordId.equals(todayRecordId)) return;
+        todayRecordId = recordId;
+
+        listeners.put("attendance/today", attendanceRepository.listenToday(currentUser.getEmployeeId(), dateId, (record, syncState) -> {
+            todayRecord = record;
+            todaySyncState = syncState;
             updateUIBasedOnStatus();
-        });
+        }));
     }
 
     private void updateUIBasedOnStatus() {
-        if (currentUser == null) return;
+        if (currentUser == null || binding == null) return;
 
         // If location isn't fetched yet, keep buttons disabled
         if (assignedLocation == null) {
@@ -137,116 +256,311 @@ public class EmployeeCheckInFragment extends Fragment {
             binding.btnCheckIn.setEnabled(true);
             binding.btnCheckOut.setEnabled(false);
             binding.tvStatus.setText("Status: Not Checked In (" + assignedLocation.getName() + ")");
-        } else if (todayRecord.getCheckOutTime() == null || todayRecord.getCheckOutTime().isEmpty()) {
+        } else if (!todayRecord.isCheckedOut()) {
             binding.btnCheckIn.setEnabled(false);
             binding.btnCheckOut.setEnabled(true);
-            binding.tvStatus.setText("Status: Checked In at " + todayRecord.getCheckInTime());
+            binding.tvStatus.setText("Status: Checked In at " + todayRecord.getCheckInDisplay() + syncSuffix());
         } else {
             binding.btnCheckIn.setEnabled(false);
             binding.btnCheckOut.setEnabled(false);
-            binding.tvStatus.setText("Status: Day Completed (" + todayRecord.getTotalHours() + ")");
+            binding.tvStatus.setText("Status: Day Completed (" + todayRecord.getTotalHoursDisplay() + ")" + syncSuffix());
+        }
+    }
+
+    private String syncSuffix() {
+        switch (todaySyncState) {
+            case AttendanceRepository.SYNCED:
+                return " · Synced";
+            case AttendanceRepository.NOT_SYNCED:
+                return " · Not synced, contact your admin";
+            default:
+                return " · Syncing…";
         }
     }
 
+    /**
+     * Starts GPS and the fingerprint prompt together and proceeds once both are done.
+     */
     private void initiateAction(boolean isCheckIn) {
         if (assignedLocation == null) {
             Toast.makeText(getContext(), "Error: No office location assigned to you.", Toast.LENGTH_LONG).show();
             return;
         }
+        // Double tap: the first pipeline is still running
+        if ((pipeline != null && !pipeline.isFinished()) || refinement != null) return;
+
+        // A recent geofence ENTER can stand in for a fresh GPS fix, but the location it yields
+        // is still checked: the OS fences are plain circles (outlines are not registered) and
+        // the user may have walked out since. Anything short of IN takes the full path.
+        GeofenceMonitor.Transition enter = allowedLocationIds == null ? null
+                : GeofenceMonitor.getInstance(requireContext())
+                        .recentEnter(allowedLocationIds, System.currentTimeMillis(), GeofenceMonitor.RECENT_ENTER_MS);
+        if (enter != null && geofenceIndex.get(enter.locationId) != null) {
+            Location onSite = onSiteLocation(enter);
+            GeofenceIndex.Verdict verdict = geofenceIndex.verify(onSite.getLatitude(), onSite.getLongitude(),
+                    onSite.hasAccuracy() ? onSite.getAccuracy() : 0f);
+            if (verdict.status == GeofenceIndex.Verdict.IN) {
+                Log.d(TAG, "Recent ENTER confirmed at " + verdict.site.getName() + ", skipping the GPS fix");
+                pipeline = CheckInPipeline.startOnSite(requireActivity(), onSite, pipelineCallback(isCheckIn, verdict.site));
+                return;
+            }
+        }
 
-        BiometricHelper.authenticate(requireActivity(), new BiometricHelper.BiometricCallback() {
+        // Done as soon as a fresh fix's accuracy circle fits inside the office radius
+        LocationHelper.FixCriteria criteria = LocationHelper.FixCriteria.forRadius(expectedSite().getRadius());
+        pipeline = CheckInPipeline.start(requireActivity(), locationHelper, criteria, pipelineCallback(isCheckIn, null));
+    }
+
+    /**
+     * @param enteredSite Site the on-site location was already verified IN; its fix is not
+     *                    verified again.
+     */
+    private CheckInPipeline.Callback pipelineCallback(boolean isCheckIn, @Nullable CompanyConfig enteredSite) {
+        return new CheckInPipeline.Callback() {
             @Override
-            public void onAuthenticationSuccess() {
-                verifyLocationAndProceed(isCheckIn);
+            public void onReady(Location location) {
+                if (binding == null) return;
+                binding.progressBar.setVisibility(View.GONE);
+                if (enteredSite != null) proceed(isCheckIn, location, enteredSite);
+                else verifyLocationAndProceed(isCheckIn, location);
             }
 
             @Override
-            public void onAuthenticationError(String errorMsg) {
-                Toast.makeText(getContext(), "Auth Error: " + errorMsg, Toast.LENGTH_SHORT).show();
+            public void onAwaitingLocation() {
+                if (binding != null) binding.progressBar.setVisibility(View.VISIBLE);
             }
 
             @Override
-            public void onAuthenticationFailed() {
+            public void onBiometricAttemptFailed() {
                 Toast.makeText(getContext(), "Fingerprint not recognized.", Toast.LENGTH_SHORT).show();
             }
-        });
+
+            @Override
+            public void onBiometricError(String errorMsg) {
+                Toast.makeText(getContext(), "Auth Error: " + errorMsg, Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onLocationError(String errorMsg) {
+                if (binding == null) return;
+                binding.progressBar.setVisibility(View.GONE);
+                Toast.makeText(getContext(), "GPS Error: " + errorMsg, Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onLocationTimeout(@Nullable Location bestSoFar) {
+                if (binding == null) return;
+                binding.progressBar.setVisibility(View.GONE);
+                String msg = bestSoFar != null
+                        ? String.format(Locale.US, "GPS too weak (±%.0fm). Move near a window and try again.", bestSoFar.getAccuracy())
+                        : "No GPS signal. Move near a window and try again.";
+                Toast.makeText(getContext(), msg, Toast.LENGTH_LONG).show();
+            }
+        };
     }
 
-    private void verifyLocationAndProceed(boolean isCheckIn) {
+    /**
+     * Candidate location for an on-site check-in: the shared session's fix if it is fresh,
+     * otherwise the location that triggered the ENTER. The caller verifies it.
+     */
+    private Location onSiteLocation(GeofenceMonitor.Transition enter) {
+        Location lastFix = LocationSessionManager.getInstance(requireContext()).getLastFix();
+        if (lastFix != null && LocationHelper.ageMillis(lastFix) <= LocationHelper.FixCriteria.DEFAULT_MAX_AGE_MS) {
+            return lastFix;
+        }
+        Location location = new Location("geofence");
+        location.setLatitude(enter.latitude);
+        location.setLongitude(enter.longitude);
+        location.setAccuracy(enter.accuracy);
+        location.setTime(enter.timeMs);
+        return location;
+    }
+
+    /**
+     * Judges the fix by its accuracy circle rather than its centre point. A fix that clearly
+     * falls inside or outside is decided at once; one straddling a fence edge gets one short
+     * refinement instead of a denial (and another full GPS attempt by the user).
+     */
+    private void verifyLocationAndProceed(boolean isCheckIn, Location location) {
+        float accuracy = location.hasAccuracy() ? location.getAccuracy() : 0f;
+        GeofenceIndex.Verdict verdict = geofenceIndex.verify(location.getLatitude(), location.getLongitude(), accuracy);
+
+        switch (verdict.status) {
+            case GeofenceIndex.Verdict.IN:
+                proceed(isCheckIn, location, verdict.site);
+                break;
+            case GeofenceIndex.Verdict.UNCERTAIN:
+                refineAndVerify(isCheckIn, location, verdict);
+                break;
+            default:
+                deny(location);
+        }
+    }
+
+    /**
+     * Waits briefly for a fix sharp enough to resolve the borderline case: its accuracy must
+     * be below the current distance to the edge. If none arrives, or it is still borderline,
+     * falls back to the centre-point test on the best fix seen.
+     */
+    private void refineAndVerify(boolean isCheckIn, Location first, GeofenceIndex.Verdict verdict) {
+        float target = Math.max(REFINE_MIN_ACCURACY_METERS, (float) verdict.edgeMeters);
+        LocationHelper.FixCriteria criteria = new LocationHelper.FixCriteria(
+                target, REFINE_MAX_AGE_MS, REFINE_TIMEOUT_MS);
+
         binding.progressBar.setVisibility(View.VISIBLE);
-        
-        locationHelper.getCurrentLocation(new LocationHelper.LocationResultCallback() {
+        Toast.makeText(getContext(), "Close to the edge of " + verdict.site.getName() + ", refining location…",
+                Toast.LENGTH_SHORT).show();
+
+        final boolean[] finished = {false}; // acquireFix may answer synchronously
+        LocationHelper.Request request = locationHelper.acquireFix(criteria, new LocationHelper.FixCallback() {
             @Override
-            public void onLocationResult(Location location) {
-                binding.progressBar.setVisibility(View.GONE);
-                
-                if (location != null) {
-                    boolean inRange = LocationHelper.isWithinRadius(
-                            location.getLatitude(), location.getLongitude(),
-                            assignedLocation.getLatitude(), assignedLocation.getLongitude(),
-                            assignedLocation.getRadius());
-
-                    if (inRange) {
-                        if (isCheckIn) performCheckIn(location);
-                        else performCheckOut(location);
-                    } else {
-                        String msg = "Denied: You are not within the 100m radius of " + assignedLocation.getName();
-                        Toast.makeText(getContext(), msg, Toast.LENGTH_LONG).show();
-                    }
-                }
+            public void onFix(Location location) {
+                finish(location);
+            }
+
+            @Override
+            public void onTimeout(@Nullable Location bestSoFar) {
+                boolean sharper = bestSoFar != null && bestSoFar.hasAccuracy()
+                        && bestSoFar.getAccuracy() < first.getAccuracy();
+                finish(sharper ? bestSoFar : first);
             }
 
             @Override
             public void onError(String errorMsg) {
+                finish(first);
+            }
+
+            private void finish(Location location) {
+                finished[0] = true;
+                refinement = null;
+                if (binding == null) return;
                 binding.progressBar.setVisibility(View.GONE);
-                Toast.makeText(getContext(), "GPS Error: " + errorMsg, Toast.LENGTH_SHORT).show();
+
+                float accuracy = location.hasAccuracy() ? location.getAccuracy() : 0f;
+                GeofenceIndex.Verdict refined = geofenceIndex.verify(location.getLatitude(), location.getLongitude(), accuracy);
+                if (refined.status == GeofenceIndex.Verdict.IN) {
+                    proceed(isCheckIn, location, refined.site);
+                    return;
+                }
+                if (refined.status == GeofenceIndex.Verdict.OUT) {
+                    deny(location);
+                    return;
+                }
+                // Still borderline: the centre point decides, as it always did
+                CompanyConfig site = geofenceIndex.firstContaining(location.getLatitude(), location.getLongitude());
+                if (site != null) proceed(isCheckIn, location, site);
+                else deny(location);
             }
         });
+        if (!finished[0]) refinement = request;
+    }
+
+    private void proceed(boolean isCheckIn, Location location, CompanyConfig site) {
+        if (isCheckIn) performCheckIn(location, site);
+        else performCheckOut(location);
+    }
+
+    private void deny(Location location) {
+        CompanyConfig nearest = geofenceIndex.nearest(location.getLatitude(), location.getLongitude());
+        if (nearest == null) nearest = assignedLocation;
+        String msg = nearest.hasBoundary()
+                ? "Denied: You are not inside the boundary of " + nearest.getName()
+                : String.format(Locale.US, "Denied: You are not within the %.0fm radius of %s",
+                        nearest.getRadius(), nearest.getName());
+        Toast.makeText(getContext(), msg, Toast.LENGTH_LONG).show();
     }
 
-    private void performCheckIn(Location loc) {
+    private void performCheckIn(Location loc, CompanyConfig site) {
         String dateId = TimeUtils.getCurrentDateId();
         String recordId = currentUser.getEmployeeId() + "_" + dateId;
 
+        long now = TimeUtils.getCurrentTimestamp();
         AttendanceRecord record = new AttendanceRecord(
                 currentUser.getEmployeeId(), 
                 currentUser.getName(), 
                 dateId, 
-                TimeUtils.getCurrentTimestamp());
+                now);
 
         record.setRecordId(recordId);
-        record.setCheckInTime(TimeUtils.getCurrentTime());
+        record.setCheckInAt(now);
         record.setCheckInLat(loc.getLatitude());
         record.setCheckInLng(loc.getLongitude());
+        record.setLocationId(site.getId());
         record.setFingerprintVerified(true);
         record.setLocationVerified(true);
         
         // Save UID to satisfy security rules (resource.data.uid)
         record.setRecordId(recordId); 
 
-        db.collection("attendance").document(recordId).set(record)
-                .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "Check-In Success!", Toast.LENGTH_SHORT).show());
+        // Applied to the local cache at once; the today-listener updates the buttons and
+        // shows "syncing" until the server acknowledges it
+        attendanceRepository.checkIn(record);
+        Toast.makeText(getContext(), "Check-In Success!", Toast.LENGTH_SHORT).show();
     }
 
     private void performCheckOut(Location loc) {
         if (todayRecord == null) return;
 
-        String checkOutTime = TimeUtils.getCurrentTime();
-        String totalHrs = TimeUtils.calculateDuration(todayRecord.getCheckInTime(), checkOutTime);
+        long checkOutAt = TimeUtils.getCurrentTimestamp();
+        todayRecord.setCheckOutAt(checkOutAt);
+        todayRecord.setCheckOutLat(loc.getLatitude());
+        todayRecord.setCheckOutLng(loc.getLongitude());
+
+        if (todayRecord.getCheckInAt() > 0) {
+            todayRecord.setWorkedMinutes(TimeUtils.minutesBetween(todayRecord.getCheckInAt(), checkOutAt));
+        } else {
+            // Checked in by an older version: only the display string is available
+            String checkOutTime = TimeUtils.formatTime(checkOutAt);
+            todayRecord.setCheckOutTime(checkOutTime);
+            todayRecord.setTotalHours(TimeUtils.calculateDuration(todayRecord.getCheckInTime(), checkOutTime));
+        }
+
+        attendanceRepository.checkOut(todayRecord);
+        Toast.makeText(getContext(), "Check-Out Success!", Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        startWarmUp();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        stopWarmUp();
+    }
+
+    /**
+     * Starts the GPS in the background so a tap can often use a fix that is already there.
+     * Bounded to the time this screen is in the foreground.
+     */
+    private void startWarmUp() {
+        if (assignedLocation == null || warmUp != null) return;
+        CompanyConfig target = expectedSite();
+        warmUp = locationHelper.startWarmUp(target.getLatitude(), target.getLongitude(), target.getRadius());
+    }
 
-        db.collection("attendance").document(todayRecord.getRecordId())
-                .update(
-                        "checkOutTime", checkOutTime,
-                        "checkOutLat", loc.getLatitude(),
-                        "checkOutLng", loc.getLongitude(),
-                        "totalHours", totalHrs
-                )
-                .addOnSuccessListener(aVoid -> Toast.makeText(getContext(), "Check-Out Success!", Toast.LENGTH_SHORT).show());
+    private void stopWarmUp() {
+        if (warmUp != null) {
+            warmUp.cancel();
+            warmUp = null;
+        }
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        allowedLocationIds = null;
+        if (pipeline != null) {
+            pipeline.cancel();
+            pipeline = null;
+        }
+        if (refinement != null) {
+            refinement.cancel();
+            refinement = null;
+        }
+        todayRecordId = null;
         binding = null;
     }
 }
\ No newline at end of file
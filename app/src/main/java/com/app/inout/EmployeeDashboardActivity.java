@@ -16,10 +16,12 @@ import androidx.navigation.ui.NavigationUI;
 
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
 import com.inout.app.databinding.ActivityEmployeeDashboardBinding;
-import com.inout.app.models.User;
+import com.inout.app.utils.AttendanceRepository;
+import com.inout.app.utils.AttendanceSyncWorker;
+import com.inout.app.utils.GeofenceMonitor;
+import com.inout.app.utils.LocationsRepository;
+import com.inout.app.utils.UserProfileStore;
 
 /**
  * Main dashboard for Employees.
@@ -30,7 +32,6 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
 
     private ActivityEmployeeDashboardBinding binding;
     private FirebaseAuth mAuth;
-    private FirebaseFirestore db;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -39,7 +40,6 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
         setContentView(binding.getRoot());
 
         mAuth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
         
         setSupportActionBar(binding.toolbar);
 
@@ -61,41 +61,39 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
         }
 
         checkUserProfileAndStatus();
+        AttendanceRepository.getInstance(this).refreshStorageMode();
+        // Check-ins queued in an earlier session (e.g. app killed while offline)
+        AttendanceSyncWorker.scheduleIfPending(this);
     }
 
     /**
      * Verifies if the user is approved and if their profile (photo/phone) is set up.
+     * The profile comes from the shared UserProfileStore, which also feeds the tabs.
      */
     private void checkUserProfileAndStatus() {
         FirebaseUser firebaseUser = mAuth.getCurrentUser();
         if (firebaseUser == null) return;
 
-        db.collection("users").document(firebaseUser.getUid())
-                .addSnapshotListener((snapshot, error) -> {
-                    if (error != null) return;
-
-                    if (snapshot != null && snapshot.exists()) {
-                        User user = snapshot.toObject(User.class);
-                        if (user != null) {
-                            // 1. Check if basic profile data is missing
-                            if (user.getPhone() == null || user.getPhone().isEmpty() || 
-                                user.getPhotoUrl() == null || user.getPhotoUrl().isEmpty()) {
-                                
-                                Toast.makeText(this, "Please complete your profile first.", Toast.LENGTH_SHORT).show();
-                                startActivity(new Intent(this, EmployeeProfileActivity.class));
-                                // We don't finish() here so they can come back after saving
-                                return;
-                            }
-
-                            // 2. Check for Admin Approval
-                            if (!user.isApproved()) {
-                                showWaitingOverlay(true);
-                            } else {
-                                showWaitingOverlay(false);
-                            }
-                        }
-                    }
-                });
+        UserProfileStore.getInstance().observe(this, user -> {
+            if (user == null) return;
+
+            // 1. Check if basic profile data is missing
+            if (user.getPhone() == null || user.getPhone().isEmpty() || 
+                user.getPhotoUrl() == null || user.getPhotoUrl().isEmpty()) {
+                
+                Toast.makeText(this, "Please complete your profile first.", Toast.LENGTH_SHORT).show();
+                startActivity(new Intent(this, EmployeeProfileActivity.class));
+                // We don't finish() here so they can come back after saving
+                return;
+            }
+
+            // 2. Check for Admin Approval
+            if (!user.isApproved()) {
+                showWaitingOverlay(true);
+            } else {
+                showWaitingOverlay(false);
+            }
+        });
     }
 
     /**
@@ -133,6 +131,9 @@ public class EmployeeDashboardActivity extends AppCompatActivity {
 
     private void logout() {
         mAuth.signOut();
+        UserProfileStore.getInstance().clear();
+        GeofenceMonitor.getInstance(this).clear();
+        LocationsRepository.getInstance(this).clear();
         Intent intent = new Intent(this, SplashActivity.class);
         intent.addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
         startActivity(intent);
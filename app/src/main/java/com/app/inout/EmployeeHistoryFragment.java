@@ -5,21 +5,19 @@ import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
 import com.inout.app.adapters.AttendanceAdapter;
 import com.inout.app.databinding.FragmentEmployeeHistoryBinding;
 import com.inout.app.models.AttendanceRecord;
-import com.inout.app.models.User;
+import com.inout.app.utils.AttendancePager;
+import com.inout.app.utils.AttendanceRepository;
+import com.inout.app.utils.ListenerRegistry;
+import com.inout.app.utils.UserProfileStore;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,11 +31,9 @@ public class EmployeeHistoryFragment extends Fragment {
     private static final String TAG = "EmployeeHistoryFrag";
     private FragmentEmployeeHistoryBinding binding;
     
-    private FirebaseFirestore db;
-    private FirebaseAuth mAuth;
-    
-    private List<AttendanceRecord> historyLogs;
     private AttendanceAdapter adapter;
+    private AttendancePager<?> pager;
+    private ListenerRegistry listeners;
     private String employeeId;
 
     @Override
@@ -50,9 +46,7 @@ public class EmployeeHistoryFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        db = FirebaseFirestore.getInstance();
-        mAuth = FirebaseAuth.getInstance();
-        historyLogs = new ArrayList<>();
+        listeners = ListenerRegistry.bindTo(getViewLifecycleOwner());
 
         setupRecyclerView();
         fetchEmployeeIdAndLoadLogs();
@@ -60,78 +54,86 @@ public class EmployeeHistoryFragment extends Fragment {
 
     private void setupRecyclerView() {
         binding.rvHistoryTable.setLayoutManager(new LinearLayoutManager(getContext()));
-        adapter = new AttendanceAdapter(historyLogs);
+        adapter = new AttendanceAdapter();
         binding.rvHistoryTable.setAdapter(adapter);
     }
 
     /**
      * First, we must get the employeeId (e.g., EMP001) from the user profile,
-     * then we can query the attendance logs.
+     * then we can query the attendance logs. The profile is shared with the
+     * other tabs, so switching here costs no extra read.
      */
     private void fetchEmployeeIdAndLoadLogs() {
-        String uid = mAuth.getCurrentUser().getUid();
         binding.progressBar.setVisibility(View.VISIBLE);
 
-        db.collection("users").document(uid).get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        User user = documentSnapshot.toObject(User.class);
-                        if (user != null && user.getEmployeeId() != null) {
-                            this.employeeId = user.getEmployeeId();
-                            loadMyLogs();
-                        } else {
-                            binding.progressBar.setVisibility(View.GONE);
-                            binding.tvNoData.setText("Employee ID not assigned yet.");
-                            binding.tvNoData.setVisibility(View.VISIBLE);
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    binding.progressBar.setVisibility(View.GONE);
-                    Toast.makeText(getContext(), "Failed to load profile.", Toast.LENGTH_SHORT).show();
-                });
+        UserProfileStore.getInstance().observe(getViewLifecycleOwner(), user -> {
+            if (user == null) return;
+
+            if (user.getEmployeeId() != null) {
+                // Profile updates (name, phone) must not restart the pager
+                if (!user.getEmployeeId().equals(this.employeeId)) {
+                    this.employeeId = user.getEmployeeId();
+                    loadMyLogs();
+                }
+            } else {
+                binding.progressBar.setVisibility(View.GONE);
+                binding.tvNoData.setText("Employee ID not assigned yet.");
+                binding.tvNoData.setVisibility(View.VISIBLE);
+            }
+        });
     }
 
     /**
-     * Queries the 'attendance' collection for records belonging to this employee.
+     * Queries the attendance records belonging to this employee, one page at a time
+     * (daily documents or monthly shards). Older pages are fetched as the user scrolls.
      */
     private void loadMyLogs() {
-        db.collection("attendance")
-                .whereEqualTo("employeeId", employeeId)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .addSnapshotListener((value, error) -> {
-                    binding.progressBar.setVisibility(View.GONE);
-                    
-                    if (error != null) {
-                        Log.e(TAG, "Error listening for history logs", error);
-                        return;
-                    }
-
-                    if (value != null) {
-                        historyLogs.clear();
-                        for (DocumentSnapshot doc : value) {
-                            AttendanceRecord record = doc.toObject(AttendanceRecord.class);
-                            if (record != null) {
-                                historyLogs.add(record);
-                            }
-                        }
-                        
-                        adapter.notifyDataSetChanged();
-                        
-                        if (historyLogs.isEmpty()) {
-                            binding.tvNoData.setVisibility(View.VISIBLE);
-                            binding.tableHeader.setVisibility(View.GONE);
-                        } else {
-                            binding.tvNoData.setVisibility(View.GONE);
-                            binding.tableHeader.setVisibility(View.VISIBLE);
-                        }
-                    }
-                });
+        stopPager();
+
+        pager = AttendanceRepository.getInstance(requireContext()).openHistory(employeeId,
+                new AttendancePager.Callback<AttendanceRecord>() {
+            @Override
+            public void onRecordsChanged(List<AttendanceRecord> records) {
+                if (binding == null) return;
+                binding.progressBar.setVisibility(View.GONE);
+
+                // ListAdapter keeps its own copy and diffs it in the background
+                adapter.submitList(new ArrayList<>(records));
+
+                if (records.isEmpty()) {
+                    binding.tvNoData.setVisibility(View.VISIBLE);
+                    binding.tableHeader.setVisibility(View.GONE);
+                } else {
+                    binding.tvNoData.setVisibility(View.GONE);
+                    binding.tableHeader.setVisibility(View.VISIBLE);
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (binding == null) return;
+                binding.progressBar.setVisibility(View.GONE);
+                Log.e(TAG, "Error listening for history logs", e);
+            }
+        });
+        pager.bindTo(listeners, "attendance?employeeId=" + employeeId);
+        pager.attachTo(binding.rvHistoryTable);
+        pager.start();
+    }
+
+    private void stopPager() {
+        if (pager != null) {
+            pager.stop();
+            pager.detach();
+            pager = null;
+        }
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        stopPager();
+        employeeId = null;
         binding = null;
     }
 }
\ No newline at end of file
@@ -9,20 +9,38 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.inout.app.R;
 import com.inout.app.models.User;
 
-import java.util.List;
+import java.util.Objects;
 
 /**
  * Adapter for the Admin to view and manage the list of Employees.
+ * Updates go through submitList(); diffing runs off the main thread.
  */
-public class EmployeeListAdapter extends RecyclerView.Adapter<EmployeeListAdapter.EmployeeViewHolder> {
+public class EmployeeListAdapter extends ListAdapter<User, EmployeeListAdapter.EmployeeViewHolder> {
+
+    private static final DiffUtil.ItemCallback<User> DIFF_CALLBACK = new DiffUtil.ItemCallback<User>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull User oldItem, @NonNull User newItem) {
+            return Objects.equals(oldItem.getUid(), newItem.getUid());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull User oldItem, @NonNull User newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getPhone(), newItem.getPhone())
+                    && Objects.equals(oldItem.getEmployeeId(), newItem.getEmployeeId())
+                    && Objects.equals(oldItem.getPhotoUrl(), newItem.getPhotoUrl())
+                    && oldItem.isApproved() == newItem.isApproved();
+        }
+    };
 
     private final Context context;
-    private final List<User> employeeList;
     private final OnEmployeeActionListener listener;
 
     /**
@@ -33,10 +51,16 @@ public class EmployeeListAdapter extends RecyclerView.Adapter<EmployeeListAdapte
         void onDeleteClicked(User user);
     }
 
-    public EmployeeListAdapter(Context context, List<User> employeeList, OnEmployeeActionListener listener) {
+    public EmployeeListAdapter(Context context, OnEmployeeActionListener listener) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.employeeList = employeeList;
         this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return StableIds.of(getItem(position).getUid());
     }
 
     @NonNull
@@ -48,7 +72,7 @@ public class EmployeeListAdapter extends RecyclerView.Adapter<EmployeeListAdapte
 
     @Override
     public void onBindViewHolder(@NonNull EmployeeViewHolder holder, int position) {
-        User user = employeeList.get(position);
+        User user = getItem(position);
 
         holder.tvName.setText(user.getName());
         holder.tvPhone.setText(user.getPhone() != null ? user.getPhone() : "No Phone");
@@ -79,11 +103,6 @@ public class EmployeeListAdapter extends RecyclerView.Adapter<EmployeeListAdapte
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return employeeList.size();
-    }
-
     static class EmployeeViewHolder extends RecyclerView.ViewHolder {
         ImageView ivProfile;
         TextView tvName, tvPhone, tvStatus;
@@ -16,6 +16,7 @@ import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.SetOptions;
 import com.inout.app.databinding.ActivityEmployeeProfileBinding;
 import com.inout.app.models.User;
+import com.inout.app.utils.UserProfileStore;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -66,6 +67,14 @@ public class EmployeeProfileActivity extends AppCompatActivity {
             binding.etName.setText(firebaseUser.getDisplayName());
         }
 
+        // The dashboard usually has the profile cached already; only hit Firestore if it doesn't
+        User cached = UserProfileStore.getInstance().getCachedUser();
+        if (cached != null && firebaseUser.getUid().equals(cached.getUid())) {
+            if (cached.getName() != null) binding.etName.setText(cached.getName());
+            if (cached.getPhone() != null) binding.etPhone.setText(cached.getPhone());
+            return;
+        }
+
         // Fetch the user's profile from Firestore to see if phone is already saved
         db.collection("users").document(firebaseUser.getUid()).get()
                 .addOnSuccessListener(documentSnapshot -> {
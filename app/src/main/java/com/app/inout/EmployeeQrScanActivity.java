@@ -1,14 +1,13 @@
 package com.inout.app;
 
 import android.Manifest;
-import android.annotation.SuppressLint;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Rect;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
 import android.util.Log;
-import android.util.Size;
 import android.view.View;
 import android.widget.Toast;
 
@@ -18,7 +17,6 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
-import androidx.camera.core.ImageProxy;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.core.app.ActivityCompat;
@@ -31,17 +29,24 @@ import com.google.mlkit.vision.barcode.BarcodeScanning;
 import com.google.mlkit.vision.barcode.common.Barcode;
 import com.google.mlkit.vision.common.InputImage;
 import com.inout.app.databinding.ActivityEmployeeQrScanBinding;
+import com.inout.app.utils.BarcodeDecoder;
+import com.inout.app.utils.CompositeBarcodeDecoder;
 import com.inout.app.utils.EncryptionHelper;
 import com.inout.app.utils.FirebaseManager;
+import com.inout.app.utils.MlKitBarcodeDecoder;
+import com.inout.app.utils.QrFountain;
+import com.inout.app.utils.QrPayloadCodec;
+import com.inout.app.utils.QrScanPipeline;
+import com.inout.app.utils.ZxingBarcodeDecoder;
 
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-@androidx.camera.core.ExperimentalGetImage
 public class EmployeeQrScanActivity extends AppCompatActivity {
 
     private static final String TAG = "EmployeeQrScanActivity";
@@ -50,7 +55,9 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
     private ActivityEmployeeQrScanBinding binding;
     private ExecutorService cameraExecutor;
     private BarcodeScanner scanner;
+    private QrScanPipeline scanPipeline;
     private boolean isProcessing = false;
+    private final QrFountain.Collector frameCollector = new QrFountain.Collector(); // Animated codes
 
     // NEW: Launcher for picking an image from Gallery
     private final ActivityResultLauncher<Intent> galleryLauncher = registerForActivityResult(
@@ -110,12 +117,25 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
         Preview preview = new Preview.Builder().build();
         preview.setSurfaceProvider(binding.viewFinder.getSurfaceProvider());
 
+        // Analysis size, crop and frame rate adapt to the device (see QrScanPipeline)
+        QrScanPipeline.Config config = QrScanPipeline.Config.forDevice(this);
+        // ZXing reads the luma crop in place and is cheap, so it goes first (or races ML Kit)
+        BarcodeDecoder decoder = new CompositeBarcodeDecoder(
+                config.shouldRaceDecoders() ? CompositeBarcodeDecoder.RACE : CompositeBarcodeDecoder.FALLBACK,
+                new ZxingBarcodeDecoder(false),
+                new MlKitBarcodeDecoder(scanner, command -> {
+                    // A decode may still complete after onDestroy() shut the executor down
+                    if (!cameraExecutor.isShutdown()) cameraExecutor.execute(command);
+                }));
+        scanPipeline = new QrScanPipeline(config, decoder, this::onCodeScanned);
+        binding.qrGuideBox.post(this::updateScanRegion);
+
         ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                .setTargetResolution(new Size(1280, 720))
+                .setTargetResolution(config.getTargetResolution())
                 .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
                 .build();
 
-        imageAnalysis.setAnalyzer(cameraExecutor, imageProxy -> processImageProxy(imageProxy));
+        imageAnalysis.setAnalyzer(cameraExecutor, scanPipeline::analyze);
 
         CameraSelector cameraSelector = CameraSelector.DEFAULT_BACK_CAMERA;
 
@@ -127,25 +147,35 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
         }
     }
 
-    private void processImageProxy(ImageProxy imageProxy) {
-        if (isProcessing || imageProxy.getImage() == null) {
-            imageProxy.close();
+    /**
+     * Tells the pipeline where the guide box sits over the preview; only that area is decoded.
+     */
+    private void updateScanRegion() {
+        if (scanPipeline == null) return;
+        View guide = binding.qrGuideBox;
+        View preview = binding.viewFinder;
+        Rect box = new Rect(guide.getLeft() - preview.getLeft(), guide.getTop() - preview.getTop(),
+                guide.getRight() - preview.getLeft(), guide.getBottom() - preview.getTop());
+        scanPipeline.setGuide(preview.getWidth(), preview.getHeight(), box);
+    }
+
+    /**
+     * Live camera result (main thread). Frames of an animated code are collected in any
+     * order until the full code can be rebuilt; anything else is a single code.
+     */
+    private void onCodeScanned(String rawValue) {
+        if (isProcessing) return;
+        if (!QrFountain.isFrame(rawValue)) {
+            handleScannedQr(rawValue);
             return;
         }
-
-        InputImage image = InputImage.fromMediaImage(imageProxy.getImage(), imageProxy.getImageInfo().getRotationDegrees());
-
-        scanner.process(image)
-                .addOnSuccessListener(barcodes -> {
-                    if (!barcodes.isEmpty()) {
-                        String rawValue = barcodes.get(0).getRawValue();
-                        if (rawValue != null) {
-                            handleScannedQr(rawValue);
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> Log.e(TAG, "Camera QR analysis failed", e))
-                .addOnCompleteListener(task -> imageProxy.close());
+        if (!frameCollector.add(rawValue)) return;
+        if (frameCollector.isComplete()) {
+            handleScannedQr(frameCollector.getCode());
+        } else {
+            binding.tvStatus.setText(String.format(Locale.US, "Receiving code… %d/%d",
+                    frameCollector.getSolvedCount(), frameCollector.getBlockCount()));
+        }
     }
 
     /**
@@ -162,7 +192,10 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
                     .addOnSuccessListener(barcodes -> {
                         if (!barcodes.isEmpty()) {
                             String rawValue = barcodes.get(0).getRawValue();
-                            if (rawValue != null) {
+                            if (QrFountain.isFrame(rawValue)) {
+                                binding.progressBar.setVisibility(View.GONE);
+                                Toast.makeText(this, "This is an animated code. Scan it live with the camera.", Toast.LENGTH_LONG).show();
+                            } else if (rawValue != null) {
                                 handleScannedQr(rawValue);
                             }
                         } else {
@@ -188,28 +221,52 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
             binding.tvStatus.setText("Processing registration...");
         });
 
-        // 1. Decrypt the payload
-        String decryptedJson = EncryptionHelper.getInstance(this).decryptQrPayload(encryptedPayload);
+        String firebaseConfigStr;
+        String companyName;
+        String projectId;
+        EncryptionHelper encryptionHelper = EncryptionHelper.getInstance(this);
+
+        if (QrPayloadCodec.isCompact(encryptedPayload)) {
+            // 1. Compact code: authenticated, compressed binary payload
+            QrPayloadCodec.Registration registration = encryptionHelper.decodeRegistrationQr(encryptedPayload);
+            if (registration == null) {
+                resetScan("Invalid QR Code. Decryption failed.");
+                return;
+            }
+            firebaseConfigStr = registration.firebaseConfig;
+            companyName = registration.companyName;
+            projectId = registration.projectId;
+        } else {
+            // 1. Legacy code: decrypt the payload
+            String decryptedJson = encryptionHelper.decryptQrPayload(encryptedPayload);
 
-        if (decryptedJson == null) {
-            resetScan("Invalid QR Code. Decryption failed.");
-            return;
+            if (decryptedJson == null) {
+                resetScan("Invalid QR Code. Decryption failed.");
+                return;
+            }
+
+            try {
+                // 2. Parse the payload Wrapper
+                JSONObject wrapper = new JSONObject(decryptedJson);
+
+                firebaseConfigStr = wrapper.getString("firebaseConfig");
+                companyName = wrapper.getString("companyName");
+                projectId = wrapper.getString("projectId");
+            } catch (Exception e) {
+                Log.e(TAG, "JSON Parsing error", e);
+                resetScan("Unsupported QR format.");
+                return;
+            }
         }
 
         try {
-            // 2. Parse the payload Wrapper
-            JSONObject wrapper = new JSONObject(decryptedJson);
-            
-            String firebaseConfigStr = wrapper.getString("firebaseConfig");
-            String companyName = wrapper.getString("companyName");
-            String projectId = wrapper.getString("projectId");
-
             // 3. Save Configuration locally
             boolean success = FirebaseManager.setConfiguration(this, firebaseConfigStr, companyName, projectId);
 
             if (success) {
                 // 4. Initialize Firebase
                 FirebaseManager.initialize(this);
+                if (scanPipeline != null) Log.i(TAG, "Scan stats: " + scanPipeline.getMetrics());
                 
                 runOnUiThread(() -> {
                     Toast.makeText(EmployeeQrScanActivity.this, "Successfully connected to " + companyName, Toast.LENGTH_LONG).show();
@@ -221,8 +278,8 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
             }
 
         } catch (Exception e) {
-            Log.e(TAG, "JSON Parsing error", e);
-            resetScan("Unsupported QR format.");
+            Log.e(TAG, "Registration failed", e);
+            resetScan("Configuration error. Data might be corrupt.");
         }
     }
 
@@ -231,6 +288,7 @@ public class EmployeeQrScanActivity extends AppCompatActivity {
             Toast.makeText(this, errorMsg, Toast.LENGTH_SHORT).show();
             binding.progressBar.setVisibility(View.GONE);
             binding.tvStatus.setText(R.string.scan_qr_title);
+            frameCollector.clear();
             isProcessing = false; 
         });
     }
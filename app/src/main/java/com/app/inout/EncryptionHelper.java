@@ -2,7 +2,6 @@ package com.inout.app.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.util.Base64;
 import android.util.Log;
 
 import androidx.security.crypto.EncryptedSharedPreferences;
@@ -13,15 +12,12 @@ import org.json.JSONObject;
 
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
-import java.security.MessageDigest;
-
-import javax.crypto.Cipher;
-import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
 
 /**
  * Handles security operations:
  * 1. Secure local storage of Firebase Config and User Roles.
- * 2. AES Encryption/Decryption for QR Code payloads.
+ * 2. AES Encryption/Decryption for QR Code payloads (compact codes: QrPayloadCodec).
  */
 public class EncryptionHelper {
 
@@ -34,10 +30,18 @@ public class EncryptionHelper {
     private static final String KEY_COMPANY_NAME = "key_company_name";
     private static final String KEY_PROJECT_ID = "key_project_id";
     private static final String KEY_IS_SETUP_DONE = "key_is_setup_done";
+    private static final String KEY_ATTENDANCE_MODE = "key_attendance_mode"; // "daily" or "monthly"
+    private static final String KEY_ATTENDANCE_OUTBOX = "key_attendance_outbox"; // Unsynced check-in/out events
+    private static final String KEY_LOCATIONS_SNAPSHOT = "key_locations_snapshot"; // Cached office locations
+    private static final String KEY_GEOFENCE_TRANSITIONS = "key_geofence_transitions"; // Last ENTER/EXIT per office
+    private static final String KEY_BACKGROUND_LOCATION_ASKED = "key_background_location_asked"; // Rationale shown once
 
     // Hardcoded Key for QR Code Encryption (Shared between Admin & Employee logic)
     private static final String QR_ENCRYPTION_KEY = "InOutAppSuperSecretKey2026";
-    private static final String AES_ALGORITHM = "AES";
+    private static final byte[] QR_GCM_VERSION = {2}; // Leading byte of GCM payloads
+
+    // Key derived once; cipher instances cached per thread
+    private final QrCryptoEngine qrCrypto = new QrCryptoEngine(QR_ENCRYPTION_KEY);
 
     private final SharedPreferences sharedPreferences;
     private static EncryptionHelper instance;
@@ -93,6 +97,50 @@ public class EncryptionHelper {
         return sharedPreferences.getString(KEY_PROJECT_ID, null);
     }
 
+    public void saveAttendanceStorageMode(String mode) {
+        sharedPreferences.edit().putString(KEY_ATTENDANCE_MODE, mode).apply();
+    }
+
+    public String getAttendanceStorageMode() {
+        return sharedPreferences.getString(KEY_ATTENDANCE_MODE, null);
+    }
+
+    /**
+     * Written with commit() so a queued check-in is on disk before the UI confirms it.
+     */
+    public void saveAttendanceOutbox(String json) {
+        sharedPreferences.edit().putString(KEY_ATTENDANCE_OUTBOX, json).commit();
+    }
+
+    public String getAttendanceOutbox() {
+        return sharedPreferences.getString(KEY_ATTENDANCE_OUTBOX, null);
+    }
+
+    public void saveGeofenceTransitions(String json) {
+        sharedPreferences.edit().putString(KEY_GEOFENCE_TRANSITIONS, json).commit();
+    }
+
+    public String getGeofenceTransitions() {
+        return sharedPreferences.getString(KEY_GEOFENCE_TRANSITIONS, null);
+    }
+
+    public void setBackgroundLocationAsked() {
+        sharedPreferences.edit().putBoolean(KEY_BACKGROUND_LOCATION_ASKED, true).apply();
+    }
+
+    public boolean wasBackgroundLocationAsked() {
+        return sharedPreferences.getBoolean(KEY_BACKGROUND_LOCATION_ASKED, false);
+    }
+
+    public void saveLocationsSnapshot(String json) {
+        if (json == null) sharedPreferences.edit().remove(KEY_LOCATIONS_SNAPSHOT).apply();
+        else sharedPreferences.edit().putString(KEY_LOCATIONS_SNAPSHOT, json).apply();
+    }
+
+    public String getLocationsSnapshot() {
+        return sharedPreferences.getString(KEY_LOCATIONS_SNAPSHOT, null);
+    }
+
     public boolean isSetupDone() {
         return sharedPreferences.getBoolean(KEY_IS_SETUP_DONE, false);
     }
@@ -101,37 +149,69 @@ public class EncryptionHelper {
         sharedPreferences.edit().clear().apply();
     }
 
-    private SecretKeySpec generateKey() throws Exception {
-        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
-        byte[] bytes = QR_ENCRYPTION_KEY.getBytes(StandardCharsets.UTF_8);
-        digest.update(bytes, 0, bytes.length);
-        byte[] key = digest.digest();
-        return new SecretKeySpec(key, AES_ALGORITHM);
+    /**
+     * Reads both GCM payloads and legacy ECB ones from older admin devices.
+     */
+    public String decryptQrPayload(String encryptedText) {
+        try {
+            return decryptQrPayload(qrCrypto, encryptedText);
+        } catch (Exception e) {
+            Log.e(TAG, "QR Decryption failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * The GCM text format decryptQrPayload() reads: Base64( version | nonce | ciphertext | tag ).
+     * The app itself no longer writes it (registration codes come from QrPayloadCodec); kept
+     * so tests can produce the payloads decryptQrPayload() must accept.
+     */
+    static String encryptQrPayload(QrCryptoEngine crypto, String plainText) throws GeneralSecurityException {
+        byte[] sealed = crypto.seal(plainText.getBytes(StandardCharsets.UTF_8), QR_GCM_VERSION);
+        byte[] out = new byte[1 + sealed.length];
+        out[0] = QR_GCM_VERSION[0];
+        System.arraycopy(sealed, 0, out, 1, sealed.length);
+        return Base64.getEncoder().encodeToString(out);
     }
 
-    public String encryptQrPayload(String plainText) {
+    /**
+     * @throws IllegalArgumentException If the text is not Base64.
+     */
+    static String decryptQrPayload(QrCryptoEngine crypto, String encryptedText) throws GeneralSecurityException {
+        // MIME decoder: skips line breaks and other stray characters, as android.util.Base64 did
+        byte[] decodedValue = Base64.getMimeDecoder().decode(encryptedText);
+        if (decodedValue.length > 0 && decodedValue[0] == QR_GCM_VERSION[0]) {
+            try {
+                byte[] plain = crypto.open(decodedValue, 1, decodedValue.length - 1, QR_GCM_VERSION);
+                return new String(plain, StandardCharsets.UTF_8);
+            } catch (GeneralSecurityException e) {
+                // Not GCM after all: an ECB block can start with the same byte
+            }
+        }
+        byte[] decValue = crypto.legacyDecrypt(decodedValue);
+        return new String(decValue, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Registration QR in the compact format (see QrPayloadCodec).
+     */
+    public String encodeRegistrationQr(QrPayloadCodec.Registration registration) {
         try {
-            SecretKeySpec key = generateKey();
-            Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, key);
-            byte[] encVal = cipher.doFinal(plainText.getBytes(StandardCharsets.UTF_8));
-            return Base64.encodeToString(encVal, Base64.NO_WRAP);
+            return QrPayloadCodec.encode(registration, qrCrypto);
         } catch (Exception e) {
-            Log.e(TAG, "QR Encryption failed", e);
+            Log.e(TAG, "QR Encoding failed", e);
             return null;
         }
     }
 
-    public String decryptQrPayload(String encryptedText) {
+    /**
+     * @return The registration, or null if the code is not a valid compact code.
+     */
+    public QrPayloadCodec.Registration decodeRegistrationQr(String content) {
         try {
-            SecretKeySpec key = generateKey();
-            Cipher cipher = Cipher.getInstance(AES_ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, key);
-            byte[] decodedValue = Base64.decode(encryptedText, Base64.NO_WRAP);
-            byte[] decValue = cipher.doFinal(decodedValue);
-            return new String(decValue, StandardCharsets.UTF_8);
+            return QrPayloadCodec.decode(content, qrCrypto);
         } catch (Exception e) {
-            Log.e(TAG, "QR Decryption failed", e);
+            Log.e(TAG, "QR Decoding failed", e);
             return null;
         }
     }
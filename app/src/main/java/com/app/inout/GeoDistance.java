@@ -0,0 +1,95 @@
+package com.inout.app.utils;
+
+/**
+ * Allocation-free distance kernel for geofence checks.
+ *
+ * Location.distanceBetween() solves Vincenty's inverse problem on the WGS84 ellipsoid
+ * (iterative, plus a float[] per call). Geofence decisions are made on ~100 m circles
+ * with GPS fixes that are themselves ±5–50 m, so a spherical model is more than enough:
+ *
+ * - haversine():     great-circle distance on a sphere of mean radius 6,371,008.8 m.
+ *                    Error vs Vincenty ≤ 0.56% at any distance (ellipsoid flattening),
+ *                    i.e. ≤ 0.6 m on a 100 m radius.
+ * - Frame:           equirectangular projection around a fixed origin with cos(lat)
+ *                    computed once. Adds < 0.1% on top of the spherical error for points
+ *                    within ~10 km of the origin below ±70° latitude; no trig per call.
+ * - Frame.within():  squared-distance compare against a precomputed radius², no sqrt.
+ *
+ * All methods are static or on immutable frames and allocate nothing per call.
+ */
+public final class GeoDistance {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private static final double DEG_TO_RAD = Math.PI / 180.0;
+    private static final double METERS_PER_DEGREE = EARTH_RADIUS_METERS * DEG_TO_RAD;
+
+    private GeoDistance() {
+    }
+
+    /**
+     * Great-circle distance in meters.
+     */
+    public static double haversine(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = (lat2 - lat1) * DEG_TO_RAD;
+        double dLng = (lng2 - lng1) * DEG_TO_RAD;
+        double sinLat = Math.sin(dLat * 0.5);
+        double sinLng = Math.sin(dLng * 0.5);
+        double a = sinLat * sinLat
+                + Math.cos(lat1 * DEG_TO_RAD) * Math.cos(lat2 * DEG_TO_RAD) * sinLng * sinLng;
+        return 2.0 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Local flat-earth frame around a fixed point (an office centre). Build it once per
+     * location and reuse it for every fix tested against that location.
+     */
+    public static final class Frame {
+        private final double originLat;
+        private final double originLng;
+        private final double metersPerDegreeLng;
+        private final double radiusSquared;
+
+        /**
+         * @param radiusMeters Radius used by within(); may be 0 if only distances are needed.
+         */
+        public Frame(double originLat, double originLng, double radiusMeters) {
+            this.originLat = originLat;
+            this.originLng = originLng;
+            this.metersPerDegreeLng = METERS_PER_DEGREE * Math.cos(originLat * DEG_TO_RAD);
+            this.radiusSquared = radiusMeters * radiusMeters;
+        }
+
+        /**
+         * Squared distance from the origin in m². Cheapest form for comparisons.
+         */
+        public double distanceSquared(double lat, double lng) {
+            double dLng = lng - originLng;
+            // Shortest way around the antimeridian
+            if (dLng > 180.0) dLng -= 360.0;
+            else if (dLng < -180.0) dLng += 360.0;
+
+            double dx = dLng * metersPerDegreeLng;
+            double dy = (lat - originLat) * METERS_PER_DEGREE;
+            return dx * dx + dy * dy;
+        }
+
+        public double distance(double lat, double lng) {
+            return Math.sqrt(distanceSquared(lat, lng));
+        }
+
+        /**
+         * True if the point is within the frame's radius.
+         */
+        public boolean within(double lat, double lng) {
+            return distanceSquared(lat, lng) <= radiusSquared;
+        }
+
+        /**
+         * True if the point is within an arbitrary radius (e.g. radius plus a margin).
+         */
+        public boolean within(double lat, double lng, double radiusMeters) {
+            return distanceSquared(lat, lng) <= radiusMeters * radiusMeters;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.inout.app.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A closed geofence boundary (building footprint, campus outline) with a fast
+ * point-in-polygon test.
+ *
+ * Boundaries are stored in Firestore as Google encoded polylines (1e-5 degree precision,
+ * ~1 m): a 12-corner footprint is ~60 characters instead of 24 doubles.
+ *
+ * The bounding box and each edge's slope are precomputed once, so contains() is a box
+ * reject followed by a crossing-number loop with one multiply per crossed edge and no
+ * allocation. Coordinates are treated as planar, which is exact enough at building scale.
+ */
+public class GeoPolygon {
+
+    private static final double EARTH_METERS_PER_DEGREE = GeoDistance.EARTH_RADIUS_METERS * Math.PI / 180.0;
+
+    private final double[] lats;
+    private final double[] lngs;
+    private final double[] slopes; // d(lng)/d(lat) of edge i -> i+1
+
+    private final double minLat, maxLat, minLng, maxLng;
+
+    /**
+     * @param points Corners as {lat, lng}, in order; the closing edge is implicit.
+     */
+    public GeoPolygon(List<double[]> points) {
+        if (points.size() < 3) throw new IllegalArgumentException("A polygon needs at least 3 corners");
+
+        int n = points.size();
+        lats = new double[n];
+        lngs = new double[n];
+        slopes = new double[n];
+
+        double loLat = Double.MAX_VALUE, hiLat = -Double.MAX_VALUE;
+        double loLng = Double.MAX_VALUE, hiLng = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            lats[i] = points.get(i)[0];
+            lngs[i] = points.get(i)[1];
+            loLat = Math.min(loLat, lats[i]);
+            hiLat = Math.max(hiLat, lats[i]);
+            loLng = Math.min(loLng, lngs[i]);
+            hiLng = Math.max(hiLng, lngs[i]);
+        }
+        minLat = loLat;
+        maxLat = hiLat;
+        minLng = loLng;
+        maxLng = hiLng;
+
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            double dLat = lats[j] - lats[i];
+            slopes[i] = dLat == 0 ? 0 : (lngs[j] - lngs[i]) / dLat;
+        }
+    }
+
+    public static GeoPolygon fromEncoded(String encoded) {
+        return new GeoPolygon(decode(encoded));
+    }
+
+    public boolean boxContains(double lat, double lng) {
+        return lat >= minLat && lat <= maxLat && lng >= minLng && lng <= maxLng;
+    }
+
+    /**
+     * Crossing-number test: a ray from the point towards increasing longitude crosses the
+     * boundary an odd number of times iff the point is inside.
+     */
+    public boolean contains(double lat, double lng) {
+        if (!boxContains(lat, lng)) return false;
+
+        boolean inside = false;
+        int n = lats.length;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            // Edge straddles the point's latitude (half-open, so shared vertices count once)
+            if ((lats[i] > lat) != (lats[j] > lat)) {
+                double crossLng = lngs[i] + (lat - lats[i]) * slopes[i];
+                if (lng < crossLng) inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Distance in meters from the point to the nearest edge (inside or outside), measured
+     * in a local flat frame around the point. Used to compare against GPS accuracy.
+     */
+    public double distanceToBoundary(double lat, double lng) {
+        double mLat = EARTH_METERS_PER_DEGREE;
+        double mLng = EARTH_METERS_PER_DEGREE * Math.cos(Math.toRadians(lat));
+        double best = Double.MAX_VALUE;
+        int n = lats.length;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            // Edge endpoints relative to the point, in meters
+            double ax = (lngs[i] - lng) * mLng, ay = (lats[i] - lat) * mLat;
+            double bx = (lngs[j] - lng) * mLng, by = (lats[j] - lat) * mLat;
+            double ex = bx - ax, ey = by - ay;
+            double lenSq = ex * ex + ey * ey;
+            double t = lenSq == 0 ? 0 : Math.max(0, Math.min(1, -(ax * ex + ay * ey) / lenSq));
+            double px = ax + t * ex, py = ay + t * ey;
+            best = Math.min(best, px * px + py * py);
+        }
+        return Math.sqrt(best);
+    }
+
+    public double getMinLat() {
+        return minLat;
+    }
+
+    public double getMaxLat() {
+        return maxLat;
+    }
+
+    public double getMinLng() {
+        return minLng;
+    }
+
+    public double getMaxLng() {
+        return maxLng;
+    }
+
+    /**
+     * Vertex average; a reasonable label/centre point for convex footprints.
+     */
+    public double[] centroid() {
+        double lat = 0, lng = 0;
+        for (int i = 0; i < lats.length; i++) {
+            lat += lats[i];
+            lng += lngs[i];
+        }
+        return new double[]{lat / lats.length, lng / lngs.length};
+    }
+
+    /**
+     * Largest distance from (lat, lng) to a corner: the radius of a circle covering the polygon.
+     */
+    public float coveringRadius(double lat, double lng) {
+        float max = 0;
+        for (int i = 0; i < lats.length; i++) {
+            max = Math.max(max, (float) GeoDistance.haversine(lat, lng, lats[i], lngs[i]));
+        }
+        return max;
+    }
+
+    // Encoded polyline format (https://developers.google.com/maps/documentation/utilities/polylinealgorithm)
+
+    public static String encode(List<double[]> points) {
+        StringBuilder sb = new StringBuilder();
+        long prevLat = 0, prevLng = 0;
+        for (double[] p : points) {
+            long lat = Math.round(p[0] * 1e5);
+            long lng = Math.round(p[1] * 1e5);
+            encodeValue(lat - prevLat, sb);
+            encodeValue(lng - prevLng, sb);
+            prevLat = lat;
+            prevLng = lng;
+        }
+        return sb.toString();
+    }
+
+    public static List<double[]> decode(String encoded) {
+        List<double[]> points = new ArrayList<>();
+        int index = 0;
+        long lat = 0, lng = 0;
+        while (index < encoded.length()) {
+            long[] result = new long[1];
+            index = decodeValue(encoded, index, result);
+            lat += result[0];
+            index = decodeValue(encoded, index, result);
+            lng += result[0];
+            points.add(new double[]{lat / 1e5, lng / 1e5});
+        }
+        return points;
+    }
+
+    private static void encodeValue(long value, StringBuilder sb) {
+        value = value < 0 ? ~(value << 1) : (value << 1);
+        while (value >= 0x20) {
+            sb.append((char) ((0x20 | (value & 0x1f)) + 63));
+            value >>= 5;
+        }
+        sb.append((char) (value + 63));
+    }
+
+    private static int decodeValue(String encoded, int index, long[] out) {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = encoded.charAt(index++) - 63;
+            result |= (long) (b & 0x1f) << shift;
+            shift += 5;
+        } while (b >= 0x20);
+        out[0] = (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+        return index;
+    }
+}
@@ -0,0 +1,48 @@
+package com.inout.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.location.Location;
+import android.util.Log;
+
+import com.google.android.gms.location.Geofence;
+import com.google.android.gms.location.GeofenceStatusCodes;
+import com.google.android.gms.location.GeofencingEvent;
+import com.inout.app.utils.GeofenceMonitor;
+
+/**
+ * Receives geofence ENTER/EXIT transitions from Play Services (see PlayGeofenceProvider)
+ * and records them for the check-in screen. Runs while the app is in the background,
+ * so it only stores the transition and returns.
+ */
+public class GeofenceBroadcastReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "GeofenceReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        GeofencingEvent event = GeofencingEvent.fromIntent(intent);
+        if (event == null) return;
+        if (event.hasError()) {
+            Log.w(TAG, "Geofence error: " + GeofenceStatusCodes.getStatusCodeString(event.getErrorCode()));
+            return;
+        }
+
+        int transition = event.getGeofenceTransition();
+        if (transition != Geofence.GEOFENCE_TRANSITION_ENTER && transition != Geofence.GEOFENCE_TRANSITION_EXIT) return;
+        boolean enter = transition == Geofence.GEOFENCE_TRANSITION_ENTER;
+
+        Location location = event.getTriggeringLocation();
+        long time = location != null ? location.getTime() : System.currentTimeMillis();
+        double lat = location != null ? location.getLatitude() : 0;
+        double lng = location != null ? location.getLongitude() : 0;
+        float accuracy = location != null && location.hasAccuracy() ? location.getAccuracy() : 0f;
+
+        GeofenceMonitor monitor = GeofenceMonitor.getInstance(context);
+        for (Geofence geofence : event.getTriggeringGeofences()) {
+            monitor.recordTransition(geofence.getRequestId(), enter, time, lat, lng, accuracy);
+            Log.d(TAG, (enter ? "ENTER " : "EXIT ") + geofence.getRequestId());
+        }
+    }
+}
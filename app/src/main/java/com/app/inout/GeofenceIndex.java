@@ -0,0 +1,245 @@
+package com.inout.app.utils;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.inout.app.models.CompanyConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory spatial index over office locations, answering "which of these locations
+ * contain this fix" without testing every site.
+ *
+ * A fence is the location's polygon boundary when it has one, otherwise its circle.
+ * Locations are bucketed into a uniform lat/lng grid (cells of CELL_DEGREES, ~1.1 km).
+ * Each fence is registered in every cell its bounding box touches, so a query reads one
+ * cell, rejects candidates with a bounding-box compare, and only computes distances for
+ * the few that remain (squared distance in a precomputed local frame). With ~400 branch
+ * sites a query is a hash lookup plus a handful of comparisons.
+ *
+ * Immutable; rebuild it when the location list changes.
+ */
+public class GeofenceIndex {
+
+    private static final String TAG = "GeofenceIndex";
+
+    private static final double CELL_DEGREES = 0.01;
+    private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+    /**
+     * A location with its precomputed bounding box, and its polygon if it has one.
+     */
+    private static final class Fence {
+        final CompanyConfig config;
+        final GeoPolygon polygon; // Null for a plain circle
+        final GeoDistance.Frame frame;
+        final double minLat, maxLat, minLng, maxLng;
+
+        Fence(CompanyConfig config) {
+            this.config = config;
+            this.polygon = parseBoundary(config);
+            this.frame = new GeoDistance.Frame(config.getLatitude(), config.getLongitude(), config.getRadius());
+            if (polygon != null) {
+                minLat = polygon.getMinLat();
+                maxLat = polygon.getMaxLat();
+                minLng = polygon.getMinLng();
+                maxLng = polygon.getMaxLng();
+                return;
+            }
+            double dLat = config.getRadius() / METERS_PER_DEGREE_LAT;
+            double cosLat = Math.max(Math.cos(Math.toRadians(config.getLatitude())), 1e-6);
+            double dLng = config.getRadius() / (METERS_PER_DEGREE_LAT * cosLat);
+            minLat = config.getLatitude() - dLat;
+            maxLat = config.getLatitude() + dLat;
+            minLng = config.getLongitude() - dLng;
+            maxLng = config.getLongitude() + dLng;
+        }
+
+        boolean boxContains(double lat, double lng) {
+            return lat >= minLat && lat <= maxLat && lng >= minLng && lng <= maxLng;
+        }
+
+        boolean contains(double lat, double lng) {
+            if (polygon != null) return polygon.contains(lat, lng);
+            // Squared compare in the fence's local frame: no trig, no sqrt
+            return frame.within(lat, lng);
+        }
+
+        /**
+         * Meters from the point to the fence edge, regardless of side.
+         */
+        double distanceToEdge(double lat, double lng) {
+            if (polygon != null) return polygon.distanceToBoundary(lat, lng);
+            return Math.abs(frame.distance(lat, lng) - config.getRadius());
+        }
+
+        private static GeoPolygon parseBoundary(CompanyConfig config) {
+            if (!config.hasBoundary()) return null;
+            try {
+                return GeoPolygon.fromEncoded(config.getBoundary());
+            } catch (RuntimeException e) {
+                // Malformed outline: fall back to the circle rather than locking everyone out
+                Log.w(TAG, "Invalid boundary for " + config.getName(), e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Outcome of an accuracy-aware check (see verify()).
+     */
+    public static final class Verdict {
+        public static final int IN = 0;
+        public static final int OUT = 1;
+        public static final int UNCERTAIN = 2;
+
+        public final int status;
+        @Nullable public final CompanyConfig site; // Matched (IN) or borderline (UNCERTAIN) site
+        public final double edgeMeters;            // UNCERTAIN: centre-to-edge distance of that site
+
+        Verdict(int status, @Nullable CompanyConfig site, double edgeMeters) {
+            this.status = status;
+            this.site = site;
+            this.edgeMeters = edgeMeters;
+        }
+    }
+
+    private final Map<Long, List<Fence>> cells = new HashMap<>();
+    private final List<Fence> fences = new ArrayList<>();
+
+    public GeofenceIndex(Collection<CompanyConfig> locations) {
+        for (CompanyConfig config : locations) {
+            Fence fence = new Fence(config);
+            fences.add(fence);
+
+            long minRow = row(fence.minLat), maxRow = row(fence.maxLat);
+            long minCol = col(fence.minLng), maxCol = col(fence.maxLng);
+            for (long r = minRow; r <= maxRow; r++) {
+                for (long c = minCol; c <= maxCol; c++) {
+                    List<Fence> bucket = cells.get(key(r, c));
+                    if (bucket == null) {
+                        bucket = new ArrayList<>(2);
+                        cells.put(key(r, c), bucket);
+                    }
+                    bucket.add(fence);
+                }
+            }
+        }
+    }
+
+    /**
+     * Locations whose fence contains the point, in index order (usually zero or one).
+     */
+    public List<CompanyConfig> containing(double lat, double lng) {
+        List<Fence> bucket = cells.get(key(row(lat), col(lng)));
+        if (bucket == null) return Collections.emptyList();
+
+        List<CompanyConfig> result = new ArrayList<>(1);
+        for (Fence fence : bucket) {
+            if (fence.boxContains(lat, lng) && fence.contains(lat, lng)) {
+                result.add(fence.config);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Accuracy-aware check that treats the fix as a circle of radius accuracyMeters:
+     *
+     * - IN:        the centre is inside a fence and the whole accuracy circle is too.
+     * - OUT:       the accuracy circle does not touch any fence.
+     * - UNCERTAIN: the accuracy circle straddles a fence edge. A sharper fix can tell;
+     *              denying here is what sends people near the edge into retry loops.
+     */
+    public Verdict verify(double lat, double lng, float accuracyMeters) {
+        CompanyConfig borderline = null;
+        double borderlineEdge = 0;
+        // Fences are registered per cell by their own bbox, so widen the lookup by the accuracy
+        double dLat = accuracyMeters / METERS_PER_DEGREE_LAT;
+        double dLng = accuracyMeters / (METERS_PER_DEGREE_LAT * Math.max(Math.cos(Math.toRadians(lat)), 1e-6));
+
+        for (long r = row(lat - dLat); r <= row(lat + dLat); r++) {
+            for (long c = col(lng - dLng); c <= col(lng + dLng); c++) {
+                List<Fence> bucket = cells.get(key(r, c));
+                if (bucket == null) continue;
+                for (Fence fence : bucket) {
+                    if (lat + dLat < fence.minLat || lat - dLat > fence.maxLat
+                            || lng + dLng < fence.minLng || lng - dLng > fence.maxLng) continue;
+
+                    boolean inside = fence.boxContains(lat, lng) && fence.contains(lat, lng);
+                    double edge = fence.distanceToEdge(lat, lng);
+                    if (edge >= accuracyMeters) {
+                        if (inside) return new Verdict(Verdict.IN, fence.config, edge);
+                    } else if (borderline == null) {
+                        borderline = fence.config;
+                        borderlineEdge = edge;
+                    }
+                }
+            }
+        }
+        return borderline != null
+                ? new Verdict(Verdict.UNCERTAIN, borderline, borderlineEdge)
+                : new Verdict(Verdict.OUT, null, 0);
+    }
+
+    /**
+     * First location containing the point, or null.
+     */
+    @Nullable
+    public CompanyConfig firstContaining(double lat, double lng) {
+        List<CompanyConfig> matches = containing(lat, lng);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    /**
+     * The indexed location with this id, or null.
+     */
+    @Nullable
+    public CompanyConfig get(String id) {
+        for (Fence fence : fences) {
+            if (fence.config.getId() != null && fence.config.getId().equals(id)) return fence.config;
+        }
+        return null;
+    }
+
+    /**
+     * Nearest location by centre distance, for messages such as "you are 240 m from X".
+     * Linear scan; only used off the hot path.
+     */
+    @Nullable
+    public CompanyConfig nearest(double lat, double lng) {
+        CompanyConfig best = null;
+        double bestDistance = Double.MAX_VALUE;
+        for (Fence fence : fences) {
+            double d = GeoDistance.haversine(lat, lng, fence.config.getLatitude(), fence.config.getLongitude());
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = fence.config;
+            }
+        }
+        return best;
+    }
+
+    public int size() {
+        return fences.size();
+    }
+
+    private static long row(double lat) {
+        return (long) Math.floor(lat / CELL_DEGREES);
+    }
+
+    private static long col(double lng) {
+        return (long) Math.floor(lng / CELL_DEGREES);
+    }
+
+    private static long key(long row, long col) {
+        return (row << 32) ^ (col & 0xffffffffL);
+    }
+}
@@ -0,0 +1,167 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.inout.app.models.CompanyConfig;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Keeps the employee's offices registered with a GeofenceProvider and remembers the last
+ * ENTER/EXIT per office, so the check-in screen knows the user is on site before the
+ * button is pressed.
+ *
+ * A recent ENTER (with no EXIT since) lets check-in skip the fresh high-accuracy fix and
+ * go straight to the biometric prompt. Transitions are persisted (encrypted), since they
+ * are usually delivered while the app is not running.
+ */
+public class GeofenceMonitor {
+
+    private static final String TAG = "GeofenceMonitor";
+
+    /**
+     * How long an ENTER counts as "on site" without a later EXIT.
+     */
+    public static final long RECENT_ENTER_MS = 10 * 60_000;
+
+    /**
+     * Last transition reported for one office.
+     */
+    public static class Transition {
+        public final String locationId;
+        public final boolean enter;
+        public final long timeMs;     // Wall clock
+        public final double latitude; // Triggering location, as reported by the provider
+        public final double longitude;
+        public final float accuracy;
+
+        Transition(String locationId, boolean enter, long timeMs, double latitude, double longitude, float accuracy) {
+            this.locationId = locationId;
+            this.enter = enter;
+            this.timeMs = timeMs;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.accuracy = accuracy;
+        }
+    }
+
+    private static GeofenceMonitor instance;
+
+    private final GeofenceProvider provider;
+    @Nullable private final EncryptionHelper storage; // Null keeps transitions in memory only
+    private final Map<String, Transition> transitions = new HashMap<>();
+
+    GeofenceMonitor(GeofenceProvider provider, @Nullable EncryptionHelper storage) {
+        this.provider = provider;
+        this.storage = storage;
+        load();
+    }
+
+    public static synchronized GeofenceMonitor getInstance(Context context) {
+        if (instance == null) {
+            Context app = context.getApplicationContext();
+            instance = new GeofenceMonitor(new PlayGeofenceProvider(app), EncryptionHelper.getInstance(app));
+        }
+        return instance;
+    }
+
+    /**
+     * Registers the employee's offices, replacing earlier ones. Transitions for offices no
+     * longer assigned are forgotten.
+     */
+    public synchronized void register(Collection<CompanyConfig> sites) {
+        Map<String, Boolean> ids = new HashMap<>();
+        for (CompanyConfig site : sites) ids.put(site.getId(), Boolean.TRUE);
+        Iterator<String> it = transitions.keySet().iterator();
+        boolean changed = false;
+        while (it.hasNext()) {
+            if (!ids.containsKey(it.next())) {
+                it.remove();
+                changed = true;
+            }
+        }
+        if (changed) persist();
+        provider.register(sites);
+    }
+
+    /**
+     * Removes all geofences and forgets all transitions. Call on logout.
+     */
+    public synchronized void clear() {
+        provider.unregisterAll();
+        transitions.clear();
+        persist();
+    }
+
+    public synchronized void recordTransition(String locationId, boolean enter, long timeMs,
+                                              double latitude, double longitude, float accuracy) {
+        Transition previous = transitions.get(locationId);
+        // The OS may deliver batched transitions out of order
+        if (previous != null && previous.timeMs > timeMs) return;
+        transitions.put(locationId, new Transition(locationId, enter, timeMs, latitude, longitude, accuracy));
+        persist();
+    }
+
+    /**
+     * The most recent ENTER among the given offices that is younger than maxAgeMs and has
+     * not been followed by an EXIT, or null.
+     */
+    @Nullable
+    public synchronized Transition recentEnter(Collection<String> locationIds, long nowMs, long maxAgeMs) {
+        Transition best = null;
+        for (String id : locationIds) {
+            Transition t = transitions.get(id);
+            if (t == null || !t.enter) continue;
+            long age = nowMs - t.timeMs;
+            if (age < 0 || age > maxAgeMs) continue;
+            if (best == null || t.timeMs > best.timeMs) best = t;
+        }
+        return best;
+    }
+
+    private void load() {
+        if (storage == null) return;
+        String json = storage.getGeofenceTransitions();
+        if (json == null) return;
+        try {
+            JSONObject root = new JSONObject(json);
+            Iterator<String> keys = root.keys();
+            while (keys.hasNext()) {
+                String id = keys.next();
+                JSONObject o = root.getJSONObject(id);
+                transitions.put(id, new Transition(id, o.getBoolean("enter"), o.getLong("time"),
+                        o.optDouble("lat", 0), o.optDouble("lng", 0), (float) o.optDouble("acc", 0)));
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Corrupt geofence transitions, discarding", e);
+            transitions.clear();
+        }
+    }
+
+    private void persist() {
+        if (storage == null) return;
+        try {
+            JSONObject root = new JSONObject();
+            for (Transition t : transitions.values()) {
+                root.put(t.locationId, new JSONObject()
+                        .put("enter", t.enter)
+                        .put("time", t.timeMs)
+                        .put("lat", t.latitude)
+                        .put("lng", t.longitude)
+                        .put("acc", t.accuracy));
+            }
+            storage.saveGeofenceTransitions(root.toString());
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to persist geofence transitions", e);
+        }
+    }
+}
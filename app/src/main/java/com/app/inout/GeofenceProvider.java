@@ -0,0 +1,22 @@
+package com.inout.app.utils;
+
+import com.inout.app.models.CompanyConfig;
+
+import java.util.Collection;
+
+/**
+ * Registers office locations with an OS-level geofencing service. Transitions come back
+ * through GeofenceMonitor.recordTransition().
+ *
+ * Kept behind an interface so the monitor can run against a fake provider on the JVM.
+ */
+public interface GeofenceProvider {
+
+    /**
+     * Replaces any earlier registration with the given sites. Best-effort: a provider that
+     * cannot register (permission, no Play Services) just logs and leaves nothing registered.
+     */
+    void register(Collection<CompanyConfig> sites);
+
+    void unregisterAll();
+}
@@ -0,0 +1,139 @@
+package com.inout.app.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mirrors a Firestore query result into a List by applying
+ * QuerySnapshot.getDocumentChanges() one change at a time.
+ *
+ * Only ADDED/MODIFIED documents are deserialized, so one approved employee costs one
+ * toObject() instead of rebuilding every item of the list. Unchanged items keep their
+ * instances.
+ *
+ * Row updates are not reported from here: screens that show the list hand a copy of it
+ * to a ListAdapter, which diffs it off the main thread and rebinds only the changed rows.
+ *
+ * The mirrored items occupy the first size() positions of the target list.
+ */
+public class IndexedSnapshotList<T> {
+
+    public interface Mapper<T> {
+        @NonNull
+        T map(@NonNull DocumentSnapshot doc);
+    }
+
+    private final List<T> target;
+    private final Mapper<T> mapper;
+
+    // Document ids in the same order as the items in target
+    private final List<String> ids = new ArrayList<>();
+    private final Map<String, T> byId = new HashMap<>();
+
+    // Set when the underlying listener was replaced; the next snapshot re-reports every doc as ADDED
+    private boolean resyncPending = false;
+
+    public IndexedSnapshotList(List<T> target, Mapper<T> mapper) {
+        this.target = target;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Applies the document changes of a snapshot to the target list.
+     */
+    public void apply(@NonNull QuerySnapshot snapshot) {
+        Set<String> seen = resyncPending ? new HashSet<>() : null;
+
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            DocumentSnapshot doc = change.getDocument();
+            String id = doc.getId();
+            if (seen != null) seen.add(id);
+
+            switch (change.getType()) {
+                case ADDED:
+                    if (byId.containsKey(id)) {
+                        // Re-listen after the query changed: keep the row, just refresh it
+                        replace(ids.indexOf(id), change.getNewIndex(), id, doc);
+                    } else {
+                        T item = mapper.map(doc);
+                        ids.add(change.getNewIndex(), id);
+                        target.add(change.getNewIndex(), item);
+                        byId.put(id, item);
+                    }
+                    break;
+
+                case MODIFIED:
+                    replace(change.getOldIndex(), change.getNewIndex(), id, doc);
+                    break;
+
+                case REMOVED:
+                    removeAt(change.getOldIndex());
+                    break;
+            }
+        }
+
+        if (seen != null) {
+            resyncPending = false;
+            for (int i = ids.size() - 1; i >= 0; i--) {
+                if (!seen.contains(ids.get(i))) removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * Call before replacing the listener with one over an overlapping query.
+     * Rows present in both results are kept in place instead of being removed and re-inserted.
+     */
+    public void beginResync() {
+        resyncPending = true;
+    }
+
+    /**
+     * Removes every mirrored item from the target list.
+     */
+    public void clear() {
+        for (int i = ids.size() - 1; i >= 0; i--) target.remove(i);
+        ids.clear();
+        byId.clear();
+        resyncPending = false;
+    }
+
+    @Nullable
+    public T get(String id) {
+        return byId.get(id);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    private void replace(int oldIndex, int newIndex, String id, DocumentSnapshot doc) {
+        T item = mapper.map(doc);
+        byId.put(id, item);
+
+        if (oldIndex == newIndex) {
+            target.set(newIndex, item);
+        } else {
+            ids.remove(oldIndex);
+            target.remove(oldIndex);
+            ids.add(newIndex, id);
+            target.add(newIndex, item);
+        }
+    }
+
+    private void removeAt(int index) {
+        byId.remove(ids.remove(index));
+        target.remove(index);
+    }
+}
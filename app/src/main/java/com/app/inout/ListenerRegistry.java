@@ -0,0 +1,115 @@
+package com.inout.app.utils;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns Firestore snapshot listeners on behalf of a screen.
+ *
+ * Every listener is stored under a key (usually the query it watches). Registering a
+ * new listener under an existing key removes the old one first, so re-running a query
+ * (spinner selection, profile update) replaces the listener instead of stacking another.
+ * All listeners are removed when the bound lifecycle is destroyed; for fragments bind
+ * to getViewLifecycleOwner() so nothing outlives the view.
+ */
+public class ListenerRegistry implements LifecycleEventObserver {
+
+    private static final String TAG = "ListenerRegistry";
+
+    // Listeners attached across all registries in this process
+    private static final AtomicInteger ACTIVE_COUNT = new AtomicInteger();
+
+    private final Map<String, ListenerRegistration> registrations = new HashMap<>();
+    private final String ownerName;
+    private boolean destroyed = false;
+
+    private ListenerRegistry(String ownerName) {
+        this.ownerName = ownerName;
+    }
+
+    /**
+     * Creates a registry that clears itself when the owner is destroyed.
+     */
+    public static ListenerRegistry bindTo(@NonNull LifecycleOwner owner) {
+        ListenerRegistry registry = new ListenerRegistry(owner.getClass().getSimpleName());
+        owner.getLifecycle().addObserver(registry);
+        return registry;
+    }
+
+    /**
+     * @return Number of snapshot listeners currently attached through any registry.
+     */
+    public static int getActiveListenerCount() {
+        return ACTIVE_COUNT.get();
+    }
+
+    /**
+     * Stores a listener under the given key, removing any listener previously stored there.
+     */
+    public void put(@NonNull String key, @NonNull ListenerRegistration registration) {
+        if (destroyed) {
+            // The view is gone; never let a late registration leak
+            registration.remove();
+            return;
+        }
+
+        ListenerRegistration previous = registrations.put(key, registration);
+        if (previous != null) {
+            previous.remove();
+        } else {
+            ACTIVE_COUNT.incrementAndGet();
+        }
+        Log.d(TAG, ownerName + ": " + registrations.size() + " local, " + ACTIVE_COUNT.get() + " active listeners");
+    }
+
+    public boolean contains(@NonNull String key) {
+        return registrations.containsKey(key);
+    }
+
+    /**
+     * Removes the listener stored under the key, if any.
+     */
+    public void remove(@NonNull String key) {
+        ListenerRegistration registration = registrations.remove(key);
+        if (registration != null) {
+            registration.remove();
+            ACTIVE_COUNT.decrementAndGet();
+        }
+    }
+
+    /**
+     * Removes every listener held by this registry.
+     */
+    public void clear() {
+        Iterator<ListenerRegistration> it = registrations.values().iterator();
+        while (it.hasNext()) {
+            it.next().remove();
+            it.remove();
+            ACTIVE_COUNT.decrementAndGet();
+        }
+    }
+
+    public int size() {
+        return registrations.size();
+    }
+
+    @Override
+    public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+        if (event == Lifecycle.Event.ON_DESTROY) {
+            destroyed = true;
+            clear();
+            source.getLifecycle().removeObserver(this);
+        }
+    }
+}
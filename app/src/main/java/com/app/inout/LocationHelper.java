@@ -5,16 +5,15 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.location.Location;
+import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
-import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 
 import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationCallback;
-import com.google.android.gms.location.LocationRequest;
-import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
 
@@ -27,88 +26,246 @@ public class LocationHelper {
 
     private static final String TAG = "LocationHelper";
     private final FusedLocationProviderClient fusedLocationClient;
+    private final LocationSessionManager sessions;
     private final Context context;
 
-    public interface LocationResultCallback {
-        void onLocationResult(Location location);
+    /**
+     * Result of a progressive fix (see acquireFix).
+     */
+    public interface FixCallback {
+        /**
+         * A fix that met the criteria. Called at most once.
+         */
+        void onFix(Location location);
+
+        /**
+         * The deadline passed first.
+         *
+         * @param bestSoFar The most accurate fix seen, or null if none arrived at all.
+         */
+        void onTimeout(@Nullable Location bestSoFar);
+
         void onError(String errorMsg);
     }
 
+    /**
+     * When a fix is good enough to stop listening.
+     */
+    public static class FixCriteria {
+        public static final long DEFAULT_MAX_AGE_MS = 10_000;
+        public static final long DEFAULT_TIMEOUT_MS = 20_000;
+
+        final float maxAccuracyMeters;
+        final long maxAgeMs;
+        final long timeoutMs;
+
+        public FixCriteria(float maxAccuracyMeters, long maxAgeMs, long timeoutMs) {
+            this.maxAccuracyMeters = maxAccuracyMeters;
+            this.maxAgeMs = maxAgeMs;
+            this.timeoutMs = timeoutMs;
+        }
+
+        /**
+         * Accuracy circle no larger than the geofence radius, fix at most 10 s old.
+         */
+        public static FixCriteria forRadius(float radiusMeters) {
+            return new FixCriteria(radiusMeters, DEFAULT_MAX_AGE_MS, DEFAULT_TIMEOUT_MS);
+        }
+
+        boolean accepts(Location location) {
+            return location.hasAccuracy()
+                    && location.getAccuracy() <= maxAccuracyMeters
+                    && ageMillis(location) <= maxAgeMs;
+        }
+    }
+
+    /**
+     * Handle to an in-flight location request. cancel() stops the GPS session and
+     * guarantees the callback is not called afterwards.
+     */
+    public interface Request {
+        void cancel();
+    }
+
     public LocationHelper(Context context) {
         this.context = context;
         this.fusedLocationClient = LocationServices.getFusedLocationProviderClient(context);
+        this.sessions = LocationSessionManager.getInstance(context);
     }
 
     /**
-     * Fetches the single most recent accurate location.
+     * Progressive fix: returns the cached last location at once if it already meets the
+     * criteria, otherwise streams high-accuracy updates and finishes on the first one that
+     * does. Latency is the time to the first good fix rather than a fixed wait, and the
+     * deadline bounds it when the sky view is poor.
      */
-    @SuppressLint("MissingPermission") // Permissions are checked before calling this
-    public void getCurrentLocation(final LocationResultCallback callback) {
+    @SuppressLint("MissingPermission")
+    public Request acquireFix(final FixCriteria criteria, final FixCallback callback) {
+        final ProgressiveFixRequest request = new ProgressiveFixRequest(criteria, callback);
         if (!hasPermissions()) {
             callback.onError("Location permissions not granted.");
-            return;
+            return request;
         }
+        // A shared session (e.g. the warm-up) already produced a good fix: finish at once
+        Location shared = sessions.getLastFix();
+        if (shared != null && request.offer(shared)) return request;
 
-        // Try getting the last known location first for speed
-        fusedLocationClient.getLastLocation().addOnSuccessListener(location -> {
-            if (location != null) {
-                // If the last location is fresh enough (e.g., < 10 seconds), use it.
-                // For this app, to ensure they are actually at the office, we prefer a fresh update.
-                // So we will request a fresh update regardless to prevent spoofing with old data.
-                requestFreshLocation(callback);
-            } else {
-                requestFreshLocation(callback);
-            }
-        }).addOnFailureListener(e -> {
-            Log.e(TAG, "Failed to get last location", e);
-            requestFreshLocation(callback);
+        fusedLocationClient.getLastLocation().addOnCompleteListener(task -> {
+            Location last = task.isSuccessful() ? task.getResult() : null;
+            request.start(last);
         });
+        return request;
     }
 
-    @SuppressLint("MissingPermission")
-    private void requestFreshLocation(final LocationResultCallback callback) {
-        // High accuracy request to ensure they are within the 100m radius
-        LocationRequest locationRequest = new LocationRequest.Builder(Priority.PRIORITY_HIGH_ACCURACY, 5000)
-                .setWaitForAccurateLocation(true)
-                .setMaxUpdates(1)
-                .build();
-
-        LocationCallback locationCallback = new LocationCallback() {
-            @Override
-            public void onLocationResult(@NonNull LocationResult locationResult) {
-                Location location = locationResult.getLastLocation();
-                if (location != null) {
-                    callback.onLocationResult(location);
-                } else {
-                    callback.onError("Failed to fetch current location.");
-                }
+    private class ProgressiveFixRequest implements Request, LocationSessionManager.Subscriber {
+        private final FixCriteria criteria;
+        private final FixCallback callback;
+        private final Handler handler = new Handler(Looper.getMainLooper());
+        private final Runnable timeout = this::onDeadline;
+        private Request subscription;
+        private Location best;
+        private boolean finished = false;
+
+        ProgressiveFixRequest(FixCriteria criteria, FixCallback callback) {
+            this.criteria = criteria;
+            this.callback = callback;
+        }
+
+        void start(@Nullable Location last) {
+            if (finished) return;
+            if (last != null && offer(last)) return;
+
+            subscription = sessions.subscribe(Priority.PRIORITY_HIGH_ACCURACY, 1000, this);
+            handler.postDelayed(timeout, criteria.timeoutMs);
+        }
+
+        @Override
+        public void onLocation(Location location) {
+            offer(location);
+        }
+
+        /**
+         * @return True if the location finished the request.
+         */
+        private boolean offer(Location location) {
+            if (finished) return true;
+            if (ageMillis(location) <= criteria.maxAgeMs
+                    && (best == null || location.getAccuracy() < best.getAccuracy())) {
+                best = location;
+            }
+            if (!criteria.accepts(location)) return false;
+
+            cancel();
+            Log.d(TAG, "Accepted fix ±" + location.getAccuracy() + "m, " + ageMillis(location) + "ms old");
+            callback.onFix(location);
+            return true;
+        }
+
+        private void onDeadline() {
+            if (finished) return;
+            cancel();
+            callback.onTimeout(best);
+        }
+
+        @Override
+        public void cancel() {
+            finished = true;
+            handler.removeCallbacks(timeout);
+            if (subscription != null) subscription.cancel();
+        }
+    }
+
+    /**
+     * Starts a background warm-up for a screen that may soon need a fix near a target
+     * (e.g. the check-in screen). It runs at balanced power while the user is far away and
+     * switches to high accuracy once they are close; its fixes are kept by the shared
+     * session for acquireFix(). The caller must cancel it when the screen is no longer visible.
+     */
+    public Request startWarmUp(double targetLat, double targetLng, float radiusMeters) {
+        WarmUpSession session = new WarmUpSession(targetLat, targetLng, radiusMeters);
+        if (hasPermissions()) session.request(false);
+        return session;
+    }
+
+    private class WarmUpSession implements Request, LocationSessionManager.Subscriber {
+        // Go to high accuracy within this distance of the fence edge; back off well beyond it
+        private static final float NEAR_MARGIN_METERS = 500f;
+        private static final float FAR_MARGIN_METERS = 1000f;
+
+        private final double targetLat;
+        private final double targetLng;
+        private final float radiusMeters;
+        private Request subscription;
+        private boolean highAccuracy;
+        private boolean cancelled = false;
+
+        WarmUpSession(double targetLat, double targetLng, float radiusMeters) {
+            this.targetLat = targetLat;
+            this.targetLng = targetLng;
+            this.radiusMeters = radiusMeters;
+        }
+
+        void request(boolean high) {
+            highAccuracy = high;
+            // Subscribe before leaving so the shared session is not torn down in between
+            Request previous = subscription;
+            subscription = high
+                    ? sessions.subscribe(Priority.PRIORITY_HIGH_ACCURACY, 2000, this)
+                    : sessions.subscribe(Priority.PRIORITY_BALANCED_POWER_ACCURACY, 10_000, this);
+            if (previous != null) previous.cancel();
+        }
+
+        @Override
+        public void onLocation(Location location) {
+            if (cancelled) return;
+
+            float edgeDistance = calculateDistance(location.getLatitude(), location.getLongitude(),
+                    targetLat, targetLng) - radiusMeters;
+            if (!highAccuracy && edgeDistance < NEAR_MARGIN_METERS) {
+                Log.d(TAG, "Near target, warming up at high accuracy");
+                request(true);
+            } else if (highAccuracy && edgeDistance > FAR_MARGIN_METERS) {
+                request(false);
             }
-        };
+        }
 
-        fusedLocationClient.requestLocationUpdates(locationRequest, locationCallback, Looper.getMainLooper());
+        @Override
+        public void cancel() {
+            cancelled = true;
+            if (subscription != null) subscription.cancel();
+        }
     }
 
     /**
      * Calculates the distance in meters between two coordinates.
-     * Uses the Android Location.distanceBetween method (Haversine formula internally).
+     * Uses the haversine kernel in GeoDistance (within 0.56% of Location.distanceBetween,
+     * without its per-call allocation).
      *
      * @return Distance in meters.
      */
     public static float calculateDistance(double startLat, double startLng, double endLat, double endLng) {
-        float[] results = new float[1];
-        Location.distanceBetween(startLat, startLng, endLat, endLng, results);
-        return results[0];
+        return (float) GeoDistance.haversine(startLat, startLng, endLat, endLng);
     }
 
     /**
      * Checks if the distance is within the allowed radius.
+     * For repeated checks against the same centre, build a GeoDistance.Frame instead.
      */
     public static boolean isWithinRadius(double currentLat, double currentLng, double targetLat, double targetLng, float radiusMeters) {
         float distance = calculateDistance(currentLat, currentLng, targetLat, targetLng);
-        Log.d(TAG, "Distance to target: " + distance + " meters. Allowed: " + radiusMeters);
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Distance to target: " + distance + " meters. Allowed: " + radiusMeters);
+        }
         return distance <= radiusMeters;
     }
 
+    /**
+     * Age of a fix on the monotonic clock (immune to wall-clock changes).
+     */
+    public static long ageMillis(Location location) {
+        return (SystemClock.elapsedRealtimeNanos() - location.getElapsedRealtimeNanos()) / 1_000_000L;
+    }
+
     private boolean hasPermissions() {
         return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED;
     }
@@ -0,0 +1,154 @@
+package com.inout.app.utils;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.location.Location;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide owner of the one FusedLocationProvider subscription the app holds.
+ *
+ * Callers (check-in taps, the warm-up session, the admin's "Capture GPS") subscribe here
+ * instead of calling requestLocationUpdates themselves. Concurrent subscriptions are merged
+ * into a single provider request at the most demanding priority and shortest interval,
+ * every fix is shared with all subscribers, and the request is removed when the last
+ * subscriber leaves. A double tap therefore never runs two GPS sessions.
+ *
+ * Main thread only.
+ */
+public class LocationSessionManager {
+
+    private static final String TAG = "LocationSessionManager";
+
+    public interface Subscriber {
+        void onLocation(Location location);
+    }
+
+    private static LocationSessionManager instance;
+
+    private final FusedLocationProviderClient fusedLocationClient;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private Location lastFix; // Latest fix of any session, shared with later callers
+
+    // The request currently registered with the provider (0 = none)
+    private int activePriority = 0;
+    private long activeIntervalMs = 0;
+
+    private final LocationCallback providerCallback = new LocationCallback() {
+        @Override
+        public void onLocationResult(@NonNull LocationResult locationResult) {
+            // Copy: subscribers typically unsubscribe from inside the callback
+            List<Subscription> targets = new ArrayList<>(subscriptions);
+            for (Location location : locationResult.getLocations()) {
+                lastFix = location;
+                for (Subscription subscription : targets) {
+                    if (subscription.active) subscription.subscriber.onLocation(location);
+                }
+            }
+        }
+    };
+
+    private LocationSessionManager(Context context) {
+        fusedLocationClient = LocationServices.getFusedLocationProviderClient(context);
+    }
+
+    public static synchronized LocationSessionManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new LocationSessionManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Joins (or starts) the shared session.
+     *
+     * @param priority   A com.google.android.gms.location.Priority constant.
+     * @param intervalMs Desired update interval for this subscriber.
+     * @return Handle whose cancel() leaves the session.
+     */
+    public LocationHelper.Request subscribe(int priority, long intervalMs, Subscriber subscriber) {
+        Subscription subscription = new Subscription(priority, intervalMs, subscriber);
+        subscriptions.add(subscription);
+        updateProviderRequest();
+        return subscription;
+    }
+
+    /**
+     * The latest fix delivered to any subscriber, or null. Callers must check its age.
+     */
+    public Location getLastFix() {
+        return lastFix;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Re-registers with the provider only when the merged requirements actually change.
+     */
+    @SuppressLint("MissingPermission") // Subscribers check permissions before subscribing
+    private void updateProviderRequest() {
+        if (subscriptions.isEmpty()) {
+            if (activePriority != 0) {
+                fusedLocationClient.removeLocationUpdates(providerCallback);
+                activePriority = 0;
+                activeIntervalMs = 0;
+                Log.d(TAG, "Last subscriber left, GPS session stopped");
+            }
+            return;
+        }
+
+        // Lower Priority values are more accurate (HIGH_ACCURACY=100 ... PASSIVE=105)
+        int priority = Integer.MAX_VALUE;
+        long intervalMs = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            priority = Math.min(priority, subscription.priority);
+            intervalMs = Math.min(intervalMs, subscription.intervalMs);
+        }
+        if (priority == activePriority && intervalMs == activeIntervalMs) return;
+
+        activePriority = priority;
+        activeIntervalMs = intervalMs;
+        LocationRequest request = new LocationRequest.Builder(priority, intervalMs)
+                .setMinUpdateIntervalMillis(Math.min(intervalMs, 500))
+                .build();
+        // Same callback: replaces the previous request instead of adding a second one
+        fusedLocationClient.requestLocationUpdates(request, providerCallback, Looper.getMainLooper());
+        Log.d(TAG, "GPS session: priority " + priority + ", " + intervalMs + "ms, "
+                + subscriptions.size() + " subscriber(s)");
+    }
+
+    private class Subscription implements LocationHelper.Request {
+        final int priority;
+        final long intervalMs;
+        final Subscriber subscriber;
+        boolean active = true;
+
+        Subscription(int priority, long intervalMs, Subscriber subscriber) {
+            this.priority = priority;
+            this.intervalMs = intervalMs;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void cancel() {
+            if (!active) return;
+            active = false;
+            subscriptions.remove(this);
+            updateProviderRequest();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.inout.app.utils;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.inout.app.models.CompanyConfig;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Process-wide cache of office locations (locations/{id}), shared by the check-in screen
+ * and the admin screens.
+ *
+ * Locations live in an in-memory map by id, mirrored to an encrypted snapshot so a cold
+ * start can show them (and enable check-in) before any network response. Each entry
+ * carries the writer's updatedAt stamp; a response never replaces a newer entry. Entries
+ * are refreshed from the server at most every REFRESH_INTERVAL_MS, so re-created views
+ * and repeated profile events cost no reads.
+ *
+ * Offline, get() silently answers from the Firestore cache, which may be partial. Such a
+ * result only adds or updates entries: nothing is deleted for being absent from it, and it
+ * does not count as a refresh.
+ *
+ * getGeneration() changes whenever the cached content changes, letting screens skip
+ * rebuilding from an identical list.
+ *
+ * Main thread only.
+ */
+public class LocationsRepository {
+
+    private static final String TAG = "LocationsRepository";
+
+    private static final int SNAPSHOT_VERSION = 1; // Bump when the JSON layout changes
+    private static final long REFRESH_INTERVAL_MS = 15 * 60_000;
+    private static final int WHERE_IN_LIMIT = 10;
+
+    private static LocationsRepository instance;
+
+    private final EncryptionHelper encryptionHelper;
+    private final Map<String, CompanyConfig> byId = new LinkedHashMap<>();
+    // Monotonic time each id was last confirmed by the server; absent = only known from disk
+    private final Map<String, Long> refreshedAt = new HashMap<>();
+    private long allRefreshedAt = 0; // Last full collection read
+    private int generation = 0;
+
+    private LocationsRepository(Context context) {
+        encryptionHelper = EncryptionHelper.getInstance(context);
+        load();
+    }
+
+    public static synchronized LocationsRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new LocationsRepository(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    @Nullable
+    public CompanyConfig getCached(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Cached locations for the given ids, in id order; ids not in the cache are skipped.
+     */
+    public List<CompanyConfig> getCached(List<String> ids) {
+        List<CompanyConfig> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            CompanyConfig config = byId.get(id);
+            if (config != null) result.add(config);
+        }
+        return result;
+    }
+
+    public List<CompanyConfig> getAllCached() {
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * The given locations, read from the server only for ids not refreshed recently.
+     * Resolves with the cached locations in id order.
+     */
+    public Task<List<CompanyConfig>> fetch(List<String> ids) {
+        long now = SystemClock.elapsedRealtime();
+        List<String> stale = new ArrayList<>();
+        for (String id : ids) {
+            Long at = refreshedAt.get(id);
+            if (at == null || now - at > REFRESH_INTERVAL_MS) stale.add(id);
+        }
+        if (stale.isEmpty()) return Tasks.forResult(getCached(ids));
+
+        // whereIn on the document id takes at most 10 values per query
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        List<List<String>> chunks = new ArrayList<>();
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (int i = 0; i < stale.size(); i += WHERE_IN_LIMIT) {
+            List<String> chunk = stale.subList(i, Math.min(i + WHERE_IN_LIMIT, stale.size()));
+            chunks.add(chunk);
+            queries.add(db.collection("locations").whereIn(FieldPath.documentId(), chunk).get());
+        }
+
+        return Tasks.whenAllSuccess(queries).continueWith(task -> {
+            List<Object> results = task.getResult();
+            for (int i = 0; i < results.size(); i++) {
+                QuerySnapshot snapshot = (QuerySnapshot) results.get(i);
+                merge(toConfigs(snapshot), chunks.get(i), !snapshot.getMetadata().isFromCache());
+            }
+            return getCached(ids);
+        });
+    }
+
+    /**
+     * Every location (admin screens), read from the server at most every REFRESH_INTERVAL_MS.
+     */
+    public Task<List<CompanyConfig>> fetchAll() {
+        if (allRefreshedAt != 0 && SystemClock.elapsedRealtime() - allRefreshedAt <= REFRESH_INTERVAL_MS) {
+            return Tasks.forResult(getAllCached());
+        }
+        return FirebaseFirestore.getInstance().collection("locations").get().continueWith(task -> {
+            QuerySnapshot snapshot = task.getResult();
+            if (snapshot.getMetadata().isFromCache()) {
+                merge(toConfigs(snapshot), Collections.<String>emptySet(), false);
+            } else {
+                replaceAll(toConfigs(snapshot));
+            }
+            return getAllCached();
+        });
+    }
+
+    /**
+     * Replaces the cache with a complete, current list, e.g. from a live listener on the
+     * whole collection. Locations not in the list are deleted, so never pass a snapshot
+     * that came from the Firestore cache (isFromCache()): it may be partial.
+     */
+    public void replaceAll(Collection<CompanyConfig> locations) {
+        Set<String> known = new HashSet<>(byId.keySet());
+        merge(locations, known, true);
+        allRefreshedAt = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Drops memory and disk copies. Call on logout.
+     */
+    public void clear() {
+        byId.clear();
+        refreshedAt.clear();
+        allRefreshedAt = 0;
+        generation++;
+        encryptionHelper.saveLocationsSnapshot(null);
+    }
+
+    /**
+     * @param fetched   Copies from a query.
+     * @param requested Ids the query asked about; if confirmed, those missing from fetched
+     *                  were deleted.
+     * @param confirmed The query was answered by the server, not the local cache. Only
+     *                  then are entries deleted and stamped as refreshed.
+     */
+    private void merge(Collection<CompanyConfig> fetched, Collection<String> requested, boolean confirmed) {
+        long now = SystemClock.elapsedRealtime();
+        boolean changed = false;
+
+        Set<String> seen = new HashSet<>();
+        for (CompanyConfig config : fetched) {
+            seen.add(config.getId());
+            if (confirmed) refreshedAt.put(config.getId(), now);
+            CompanyConfig current = byId.get(config.getId());
+            // An older copy (e.g. a slow response racing a listener) never wins
+            if (current != null && current.getUpdatedAt() > config.getUpdatedAt()) continue;
+            if (current == null || !sameContent(current, config)) {
+                byId.put(config.getId(), config);
+                changed = true;
+            }
+        }
+        for (String id : requested) {
+            if (confirmed && !seen.contains(id) && byId.remove(id) != null) {
+                refreshedAt.remove(id);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            generation++;
+            persist();
+        }
+    }
+
+    private static List<CompanyConfig> toConfigs(QuerySnapshot snapshot) {
+        List<CompanyConfig> configs = new ArrayList<>();
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            CompanyConfig config = doc.toObject(CompanyConfig.class);
+            if (config == null) continue;
+            config.setId(doc.getId());
+            configs.add(config);
+        }
+        return configs;
+    }
+
+    private static boolean sameContent(CompanyConfig a, CompanyConfig b) {
+        return a.getUpdatedAt() == b.getUpdatedAt()
+                && a.getLatitude() == b.getLatitude()
+                && a.getLongitude() == b.getLongitude()
+                && a.getRadius() == b.getRadius()
+                && Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getBoundary(), b.getBoundary());
+    }
+
+    private void load() {
+        String json = encryptionHelper.getLocationsSnapshot();
+        if (json == null) return;
+        try {
+            JSONObject root = new JSONObject(json);
+            if (root.optInt("v") != SNAPSHOT_VERSION) return;
+            JSONArray array = root.getJSONArray("locations");
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject o = array.getJSONObject(i);
+                CompanyConfig config = new CompanyConfig(o.optString("name", null),
+                        o.getDouble("lat"), o.getDouble("lng"));
+                config.setId(o.getString("id"));
+                config.setRadius((float) o.getDouble("radius"));
+                config.setBoundary(o.optString("boundary", null));
+                config.setUpdatedAt(o.optLong("updatedAt", 0));
+                byId.put(config.getId(), config);
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Corrupt locations snapshot, discarding", e);
+            byId.clear();
+        }
+    }
+
+    private void persist() {
+        try {
+            JSONArray array = new JSONArray();
+            for (CompanyConfig config : byId.values()) {
+                JSONObject o = new JSONObject()
+                        .put("id", config.getId())
+                        .put("lat", config.getLatitude())
+                        .put("lng", config.getLongitude())
+                        .put("radius", config.getRadius())
+                        .put("updatedAt", config.getUpdatedAt());
+                if (config.getName() != null) o.put("name", config.getName());
+                if (config.hasBoundary()) o.put("boundary", config.getBoundary());
+                array.put(o);
+            }
+            encryptionHelper.saveLocationsSnapshot(new JSONObject()
+                    .put("v", SNAPSHOT_VERSION)
+                    .put("locations", array)
+                    .toString());
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to persist locations snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.inout.app.utils;
+
+import com.google.mlkit.vision.barcode.BarcodeScanner;
+import com.google.mlkit.vision.barcode.common.Barcode;
+import com.google.mlkit.vision.common.InputImage;
+
+import java.util.concurrent.Executor;
+
+/**
+ * ML Kit backend. Passes the frame to the scanner as NV21 and reports on callbackExecutor
+ * (the camera executor, so a fallback decoder never runs on the main thread).
+ */
+public class MlKitBarcodeDecoder implements BarcodeDecoder {
+
+    private final BarcodeScanner scanner;
+    private final Executor callbackExecutor;
+
+    public MlKitBarcodeDecoder(BarcodeScanner scanner, Executor callbackExecutor) {
+        this.scanner = scanner;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public void decode(Frame frame, Callback callback) {
+        InputImage image = InputImage.fromByteArray(frame.data, frame.width, frame.height,
+                frame.rotationDegrees, InputImage.IMAGE_FORMAT_NV21);
+        scanner.process(image).addOnCompleteListener(callbackExecutor, task -> {
+            if (!task.isSuccessful()) {
+                callback.onDone(task.getException());
+                return;
+            }
+            for (Barcode barcode : task.getResult()) {
+                if (barcode.getRawValue() != null) {
+                    callback.onFound(barcode.getRawValue());
+                    break;
+                }
+            }
+            callback.onDone(null);
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "mlkit";
+    }
+
+    @Override
+    public void close() {
+        scanner.close();
+    }
+}
@@ -0,0 +1,129 @@
+package com.inout.app.models;
+
+import com.google.firebase.firestore.Exclude;
+import com.google.firebase.firestore.IgnoreExtraProperties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One employee's attendance for one calendar month.
+ * Stored in Firestore under: attendance_monthly/{employeeId}_{yyyy-MM}
+ *
+ * Used when the company runs in monthly storage mode: a month of history is a single
+ * document read instead of one read per working day.
+ */
+@IgnoreExtraProperties
+public class MonthlyAttendance {
+
+    private String employeeId;
+    private String employeeName;
+    private String month;           // yyyy-MM
+    private long timestamp;         // Last write, Unix millis
+
+    // Month rollups, kept current on every write so admin totals are single aggregate reads
+    private String lastCheckInDate; // yyyy-MM-dd of the latest check-in
+    private String openDate;        // yyyy-MM-dd while checked in, absent after check-out
+    private String locationId;      // Office of the latest check-in
+    private long workedMinutes;     // Sum of the month's worked minutes
+
+    // Day of month ("01".."31") -> that day's check-in/out entry
+    private Map<String, AttendanceRecord> days = new HashMap<>();
+
+    public MonthlyAttendance() {
+        // Default constructor required for Firestore
+    }
+
+    /**
+     * Expands the month into daily records, newest day first (same order as the daily collection).
+     */
+    @Exclude
+    public List<AttendanceRecord> toRecords() {
+        List<String> keys = new ArrayList<>(days.keySet());
+        Collections.sort(keys, Collections.reverseOrder());
+
+        List<AttendanceRecord> records = new ArrayList<>(keys.size());
+        for (String day : keys) {
+            AttendanceRecord record = days.get(day);
+            if (record != null) records.add(record);
+        }
+        return records;
+    }
+
+    // Getters and Setters
+
+    public String getEmployeeId() {
+        return employeeId;
+    }
+
+    public void setEmployeeId(String employeeId) {
+        this.employeeId = employeeId;
+    }
+
+    public String getEmployeeName() {
+        return employeeName;
+    }
+
+    public void setEmployeeName(String employeeName) {
+        this.employeeName = employeeName;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    public void setMonth(String month) {
+        this.month = month;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getLastCheckInDate() {
+        return lastCheckInDate;
+    }
+
+    public void setLastCheckInDate(String lastCheckInDate) {
+        this.lastCheckInDate = lastCheckInDate;
+    }
+
+    public String getOpenDate() {
+        return openDate;
+    }
+
+    public void setOpenDate(String openDate) {
+        this.openDate = openDate;
+    }
+
+    public String getLocationId() {
+        return locationId;
+    }
+
+    public void setLocationId(String locationId) {
+        this.locationId = locationId;
+    }
+
+    public long getWorkedMinutes() {
+        return workedMinutes;
+    }
+
+    public void setWorkedMinutes(long workedMinutes) {
+        this.workedMinutes = workedMinutes;
+    }
+
+    public Map<String, AttendanceRecord> getDays() {
+        return days;
+    }
+
+    public void setDays(Map<String, AttendanceRecord> days) {
+        this.days = days != null ? days : new HashMap<>();
+    }
+}
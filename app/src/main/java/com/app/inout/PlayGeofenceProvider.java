@@ -0,0 +1,109 @@
+package com.inout.app.utils;
+
+import android.Manifest;
+import android.annotation.SuppressLint;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import com.google.android.gms.location.Geofence;
+import com.google.android.gms.location.GeofencingClient;
+import com.google.android.gms.location.GeofencingRequest;
+import com.google.android.gms.location.LocationServices;
+import com.inout.app.GeofenceBroadcastReceiver;
+import com.inout.app.models.CompanyConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * GeofenceProvider backed by the Play Services Geofencing API.
+ *
+ * Each office is registered as a circle (for outlined offices, the covering circle saved
+ * with the outline) with ENTER and EXIT transitions delivered to GeofenceBroadcastReceiver.
+ * Geofences do not survive a reboot or an app update, so register() is called every time
+ * the employee's offices are loaded.
+ *
+ * On Android 10+ the OS only evaluates geofences for apps holding background location.
+ * EmployeeCheckInFragment asks for it once, with a rationale; without it nothing is
+ * registered and check-in simply takes the normal GPS path.
+ */
+public class PlayGeofenceProvider implements GeofenceProvider {
+
+    private static final String TAG = "PlayGeofenceProvider";
+
+    // Play Services limit per app
+    private static final int MAX_GEOFENCES = 100;
+    // Let the OS batch transitions; a few seconds late is fine for an ENTER hint
+    private static final int NOTIFICATION_RESPONSIVENESS_MS = 30_000;
+
+    private final Context context;
+    private final GeofencingClient client;
+
+    public PlayGeofenceProvider(Context context) {
+        this.context = context.getApplicationContext();
+        this.client = LocationServices.getGeofencingClient(this.context);
+    }
+
+    @Override
+    @SuppressLint("MissingPermission") // Checked in hasPermissions()
+    public void register(Collection<CompanyConfig> sites) {
+        if (!hasPermissions()) {
+            Log.d(TAG, "Background location not granted, geofences not registered");
+            return;
+        }
+
+        List<Geofence> geofences = new ArrayList<>();
+        for (CompanyConfig site : sites) {
+            if (site.getId() == null || geofences.size() == MAX_GEOFENCES) continue;
+            geofences.add(new Geofence.Builder()
+                    .setRequestId(site.getId())
+                    .setCircularRegion(site.getLatitude(), site.getLongitude(), site.getRadius())
+                    .setExpirationDuration(Geofence.NEVER_EXPIRE)
+                    .setTransitionTypes(Geofence.GEOFENCE_TRANSITION_ENTER | Geofence.GEOFENCE_TRANSITION_EXIT)
+                    .setNotificationResponsiveness(NOTIFICATION_RESPONSIVENESS_MS)
+                    .build());
+        }
+        if (geofences.isEmpty()) return;
+
+        GeofencingRequest request = new GeofencingRequest.Builder()
+                // Already on site when registering: report it right away
+                .setInitialTrigger(GeofencingRequest.INITIAL_TRIGGER_ENTER)
+                .addGeofences(geofences)
+                .build();
+
+        // Same PendingIntent and request ids: replaces the previous registration
+        client.removeGeofences(pendingIntent())
+                .continueWithTask(task -> client.addGeofences(request, pendingIntent()))
+                .addOnSuccessListener(v -> Log.d(TAG, "Registered " + geofences.size() + " geofence(s)"))
+                .addOnFailureListener(e -> Log.w(TAG, "Geofence registration failed", e));
+    }
+
+    @Override
+    public void unregisterAll() {
+        client.removeGeofences(pendingIntent())
+                .addOnFailureListener(e -> Log.w(TAG, "Geofence removal failed", e));
+    }
+
+    private boolean hasPermissions() {
+        boolean fine = ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) return fine;
+        return fine && ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_BACKGROUND_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private PendingIntent pendingIntent() {
+        Intent intent = new Intent(context, GeofenceBroadcastReceiver.class);
+        // Play Services fills in the event extras, so the intent must be mutable
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT
+                | (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S ? PendingIntent.FLAG_MUTABLE : 0);
+        return PendingIntent.getBroadcast(context, 0, intent, flags);
+    }
+}
@@ -0,0 +1,108 @@
+package com.inout.app.utils;
+
+import androidx.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AES-GCM for QR payloads, with the per-call overhead taken out:
+ *
+ * - The key is derived (SHA-256 of the shared secret) once, in the constructor.
+ * - Cipher instances are looked up once per thread and re-initialised per call, so the
+ *   provider lookup in Cipher.getInstance() is not paid on every scan or generation.
+ * - Every seal() uses a fresh random 96-bit nonce, stored in front of the ciphertext.
+ *
+ * legacyDecrypt() keeps reading codes produced by older versions ("AES", i.e. ECB with
+ * PKCS#5 padding); nothing is encrypted that way any more.
+ *
+ * Thread-safe.
+ */
+public final class QrCryptoEngine {
+
+    public static final int NONCE_BYTES = 12;
+    public static final int TAG_BYTES = 16;
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+
+    private final ThreadLocal<Cipher> gcm = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            return newCipher("AES/GCM/NoPadding");
+        }
+    };
+
+    private final ThreadLocal<Cipher> legacy = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            return newCipher("AES");
+        }
+    };
+
+    public QrCryptoEngine(String secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            key = new SecretKeySpec(digest, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /**
+     * @param aad Authenticated but unencrypted data (e.g. a format version), or null.
+     * @return nonce | ciphertext | tag
+     */
+    public byte[] seal(byte[] plaintext, @Nullable byte[] aad) throws GeneralSecurityException {
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+
+        Cipher cipher = gcm.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BYTES * 8, nonce));
+        if (aad != null) cipher.updateAAD(aad);
+
+        byte[] out = new byte[NONCE_BYTES + cipher.getOutputSize(plaintext.length)];
+        System.arraycopy(nonce, 0, out, 0, NONCE_BYTES);
+        int written = cipher.doFinal(plaintext, 0, plaintext.length, out, NONCE_BYTES);
+        if (written != out.length - NONCE_BYTES) throw new GeneralSecurityException("Unexpected GCM output size");
+        return out;
+    }
+
+    /**
+     * Reverses seal() on data[offset, offset + length).
+     *
+     * @throws GeneralSecurityException If the data is truncated, tampered with, or sealed
+     *                                  under another key or aad.
+     */
+    public byte[] open(byte[] data, int offset, int length, @Nullable byte[] aad) throws GeneralSecurityException {
+        if (length < NONCE_BYTES + TAG_BYTES) throw new GeneralSecurityException("Sealed data too short");
+
+        Cipher cipher = gcm.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BYTES * 8, data, offset, NONCE_BYTES));
+        if (aad != null) cipher.updateAAD(aad);
+        return cipher.doFinal(data, offset + NONCE_BYTES, length - NONCE_BYTES);
+    }
+
+    /**
+     * Decrypts a pre-GCM (ECB) payload.
+     */
+    public byte[] legacyDecrypt(byte[] ciphertext) throws GeneralSecurityException {
+        Cipher cipher = legacy.get();
+        cipher.init(Cipher.DECRYPT_MODE, key);
+        return cipher.doFinal(ciphertext);
+    }
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(transformation + " unavailable", e);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.inout.app.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Animated, multi-frame transfer of a compact registration code (QrPayloadCodec) for
+ * configs too large to scan comfortably as one QR.
+ *
+ * The code's bytes are split into K blocks. Frame n carries either block n (n < K, the
+ * systematic part) or the XOR of a pseudo-random set of blocks chosen from n (fountain
+ * part, ideal soliton degrees). Every frame is self-describing:
+ *
+ *   "IF:" + Base45( version | messageId(4) | K(1) | length(2) | n(4) | block )
+ *
+ * so the receiver can start on any frame, take them in any order, ignore repeats, and
+ * finish as soon as it can solve all K blocks. A scanner that catches frames 0..K-1 needs
+ * exactly K frames. One that joins later needs noticeably more, because ideal soliton
+ * degrees leave the peeling decoder stuck until enough low-degree frames arrive: about
+ * 1.4-1.6 x K distinct frames on average (32 for K = 21, over 40 one time in ten).
+ * Block sets are derived with java.util.Random, whose sequence is specified, so sender
+ * and receiver agree across devices.
+ *
+ * With the default 48-byte blocks each frame is about 90 alphanumeric characters: a
+ * version 3-4 QR that decodes in a few milliseconds from across a room.
+ */
+public final class QrFountain {
+
+    public static final String PREFIX = "IF:";
+    public static final int DEFAULT_BLOCK_BYTES = 48;
+
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int MAX_BLOCKS = 255;
+
+    private QrFountain() {
+    }
+
+    public static boolean isFrame(String content) {
+        return content != null && content.startsWith(PREFIX);
+    }
+
+    /**
+     * Produces an endless stream of frames for one code. Immutable.
+     */
+    public static class Encoder {
+        private final byte[][] blocks;
+        private final int length;
+        private final int messageId;
+        private final int blockBytes;
+
+        public Encoder(String compactCode, int blockBytes) {
+            byte[] message = QrPayloadCodec.toBinary(compactCode);
+            int k = (message.length + blockBytes - 1) / blockBytes;
+            if (k > MAX_BLOCKS || message.length > 0xffff) {
+                throw new IllegalArgumentException("Payload too large for " + blockBytes + "-byte blocks");
+            }
+            this.length = message.length;
+            this.blockBytes = blockBytes;
+            this.messageId = new Random().nextInt();
+            this.blocks = new byte[k][];
+            for (int i = 0; i < k; i++) {
+                // Zero-padded last block
+                blocks[i] = Arrays.copyOfRange(message, i * blockBytes, (i + 1) * blockBytes);
+            }
+        }
+
+        public int getBlockCount() {
+            return blocks.length;
+        }
+
+        /**
+         * Frame number n; any non-negative n is valid.
+         */
+        public String frame(int n) {
+            byte[] data = new byte[blockBytes];
+            for (int index : blocksFor(n, blocks.length)) xorInto(data, blocks[index]);
+
+            byte[] frame = new byte[HEADER_BYTES + blockBytes];
+            frame[0] = VERSION;
+            putInt(frame, 1, messageId);
+            frame[5] = (byte) blocks.length;
+            frame[6] = (byte) (length >> 8);
+            frame[7] = (byte) length;
+            putInt(frame, 8, n);
+            System.arraycopy(data, 0, frame, HEADER_BYTES, blockBytes);
+            return PREFIX + QrPayloadCodec.base45Encode(frame);
+        }
+    }
+
+    /**
+     * Reassembles a code from frames (peeling decoder). Not thread-safe.
+     */
+    public static class Collector {
+
+        private static final class Equation {
+            final List<Integer> unknown;
+            final byte[] data;
+
+            Equation(List<Integer> unknown, byte[] data) {
+                this.unknown = unknown;
+                this.data = data;
+            }
+        }
+
+        private int messageId;
+        private int length;
+        private byte[][] solved; // Null until the first frame
+        private int solvedCount;
+        private final Set<Integer> seen = new HashSet<>();
+        private final List<Equation> pending = new ArrayList<>();
+
+        /**
+         * @return True if the frame was new and valid. A frame from a different code resets
+         *         the collector (the admin regenerated the code).
+         */
+        public boolean add(String content) {
+            if (!isFrame(content)) return false;
+            byte[] frame;
+            try {
+                frame = QrPayloadCodec.base45Decode(content.substring(PREFIX.length()));
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            if (frame.length <= HEADER_BYTES || frame[0] != VERSION) return false;
+
+            int id = getInt(frame, 1);
+            int k = frame[5] & 0xff;
+            int len = ((frame[6] & 0xff) << 8) | (frame[7] & 0xff);
+            int n = getInt(frame, 8);
+            int blockBytes = frame.length - HEADER_BYTES;
+            if (k == 0 || n < 0 || len > k * blockBytes) return false;
+
+            if (solved == null || id != messageId || k != solved.length) reset(id, k, len);
+            if (isComplete() || !seen.add(n)) return false;
+
+            byte[] data = Arrays.copyOfRange(frame, HEADER_BYTES, frame.length);
+            List<Integer> unknown = new ArrayList<>();
+            for (int index : blocksFor(n, k)) {
+                if (solved[index] != null) xorInto(data, solved[index]);
+                else unknown.add(index);
+            }
+            if (unknown.isEmpty()) return true;
+            if (unknown.size() == 1) solve(unknown.get(0), data);
+            else pending.add(new Equation(unknown, data));
+            return true;
+        }
+
+        public boolean isComplete() {
+            return solved != null && solvedCount == solved.length;
+        }
+
+        public int getBlockCount() {
+            return solved != null ? solved.length : 0;
+        }
+
+        public int getSolvedCount() {
+            return solvedCount;
+        }
+
+        /**
+         * The reassembled compact code; only valid once isComplete().
+         */
+        public String getCode() {
+            byte[] message = new byte[solved.length * solved[0].length];
+            for (int i = 0; i < solved.length; i++) {
+                System.arraycopy(solved[i], 0, message, i * solved[i].length, solved[i].length);
+            }
+            return QrPayloadCodec.fromBinary(Arrays.copyOf(message, length));
+        }
+
+        /**
+         * Forgets all frames, e.g. after the rebuilt code was rejected.
+         */
+        public void clear() {
+            solved = null;
+            solvedCount = 0;
+            seen.clear();
+            pending.clear();
+        }
+
+        private void reset(int id, int k, int len) {
+            messageId = id;
+            length = len;
+            solved = new byte[k][];
+            solvedCount = 0;
+            seen.clear();
+            pending.clear();
+        }
+
+        /**
+         * Records a block and peels it out of every pending equation, solving any that drop
+         * to a single unknown.
+         */
+        private void solve(int index, byte[] block) {
+            List<Integer> queue = new ArrayList<>();
+            List<byte[]> values = new ArrayList<>();
+            queue.add(index);
+            values.add(block);
+
+            while (!queue.isEmpty()) {
+                int i = queue.remove(queue.size() - 1);
+                byte[] value = values.remove(values.size() - 1);
+                if (solved[i] != null) continue;
+                solved[i] = value;
+                solvedCount++;
+
+                Iterator<Equation> it = pending.iterator();
+                while (it.hasNext()) {
+                    Equation eq = it.next();
+                    if (!eq.unknown.remove(Integer.valueOf(i))) continue;
+                    xorInto(eq.data, value);
+                    if (eq.unknown.size() <= 1) {
+                        it.remove();
+                        if (eq.unknown.size() == 1) {
+                            queue.add(eq.unknown.get(0));
+                            values.add(eq.data);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Block indices combined in frame n: block n itself for the first k frames, then a
+     * pseudo-random set whose size follows the ideal soliton distribution.
+     */
+    static int[] blocksFor(int n, int k) {
+        if (n < k) return new int[]{n};
+
+        Random random = new Random(n * 0x9E3779B97F4A7C15L ^ k);
+        // Inverse CDF of the ideal soliton: P(1) = 1/k, P(d) = 1/(d(d-1))
+        double u = random.nextDouble();
+        int degree = (int) Math.min(k, Math.ceil(1.0 / (1.0 + 1.0 / k - u)));
+        degree = Math.max(degree, 1);
+
+        // Partial Fisher-Yates: first `degree` entries are distinct random blocks
+        int[] indices = new int[k];
+        for (int i = 0; i < k; i++) indices[i] = i;
+        for (int i = 0; i < degree; i++) {
+            int j = i + random.nextInt(k - i);
+            int tmp = indices[i];
+            indices[i] = indices[j];
+            indices[j] = tmp;
+        }
+        return Arrays.copyOf(indices, degree);
+    }
+
+    private static void xorInto(byte[] target, byte[] source) {
+        for (int i = 0; i < target.length; i++) target[i] ^= source[i];
+    }
+
+    private static void putInt(byte[] out, int offset, int value) {
+        out[offset] = (byte) (value >> 24);
+        out[offset + 1] = (byte) (value >> 16);
+        out[offset + 2] = (byte) (value >> 8);
+        out[offset + 3] = (byte) value;
+    }
+
+    private static int getInt(byte[] in, int offset) {
+        return ((in[offset] & 0xff) << 24) | ((in[offset + 1] & 0xff) << 16)
+                | ((in[offset + 2] & 0xff) << 8) | (in[offset + 3] & 0xff);
+    }
+}
@@ -0,0 +1,251 @@
+package com.inout.app.utils;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary format for the company registration QR.
+ *
+ * The legacy code carried the whole google-services.json, escaped inside a JSON wrapper,
+ * AES-encrypted and Base64-encoded: well over a kilobyte in QR byte mode. This format keeps
+ * only what the employee device needs (FirebaseManager.buildOptionsFromJson() and
+ * EncryptionHelper.getWebClientId()):
+ *
+ *   "IO:" + Base45( version | QrCryptoEngine.seal( Deflate( fields ) ) )
+ *
+ * Base45 uses exactly the QR alphanumeric alphabet, so the text is encoded at 5.5 bits per
+ * character instead of 8, and the GCM tag rejects tampered or foreign codes. The version
+ * byte is authenticated as associated data. Codes without the prefix are legacy and go
+ * through EncryptionHelper.decryptQrPayload().
+ */
+public final class QrPayloadCodec {
+
+    public static final String PREFIX = "IO:";
+
+    private static final int VERSION = 1;
+    private static final int MAX_INFLATED_BYTES = 16 * 1024; // Guard against inflate bombs
+
+    private static final String BASE45_ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ $%*+-./:";
+
+    /**
+     * What a registration QR carries.
+     */
+    public static class Registration {
+        public final String companyName;
+        public final String projectId;
+        public final String firebaseConfig; // google-services.json (minimal when decoded)
+        public final long issuedAt;
+
+        public Registration(String companyName, String projectId, String firebaseConfig, long issuedAt) {
+            this.companyName = companyName;
+            this.projectId = projectId;
+            this.firebaseConfig = firebaseConfig;
+            this.issuedAt = issuedAt;
+        }
+    }
+
+    private QrPayloadCodec() {
+    }
+
+    public static boolean isCompact(String content) {
+        return content != null && content.startsWith(PREFIX);
+    }
+
+    public static String encode(Registration registration, QrCryptoEngine crypto) throws GeneralSecurityException, JSONException {
+        byte[] compressed = deflate(writeFields(registration));
+        byte[] sealed = crypto.seal(compressed, new byte[]{VERSION});
+
+        byte[] out = new byte[1 + sealed.length];
+        out[0] = VERSION;
+        System.arraycopy(sealed, 0, out, 1, sealed.length);
+        return PREFIX + base45Encode(out);
+    }
+
+    /**
+     * @return The registration, or null if the code is malformed, from an unknown version,
+     *         or fails authentication.
+     */
+    @Nullable
+    public static Registration decode(String content, QrCryptoEngine crypto) {
+        if (!isCompact(content)) return null;
+        try {
+            byte[] data = base45Decode(content.substring(PREFIX.length()));
+            if (data.length < 1 || data[0] != VERSION) return null;
+
+            byte[] compressed = crypto.open(data, 1, data.length - 1, new byte[]{data[0]});
+            return readFields(inflate(compressed));
+        } catch (GeneralSecurityException | IOException | DataFormatException | JSONException
+                 | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The binary form of a compact code (what Base45 encodes), e.g. to split it into frames.
+     */
+    static byte[] toBinary(String compactCode) {
+        return base45Decode(compactCode.substring(PREFIX.length()));
+    }
+
+    static String fromBinary(byte[] data) {
+        return PREFIX + base45Encode(data);
+    }
+
+    // Fields: only what the employee device reads from google-services.json
+
+    private static byte[] writeFields(Registration r) throws JSONException {
+        JSONObject root = new JSONObject(r.firebaseConfig);
+        JSONObject projectInfo = root.getJSONObject("project_info");
+        JSONObject client = root.getJSONArray("client").getJSONObject(0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(r.companyName != null ? r.companyName : "");
+            out.writeUTF(r.projectId);
+            out.writeUTF(projectInfo.getString("project_id"));
+            out.writeUTF(projectInfo.optString("storage_bucket", ""));
+            out.writeUTF(client.getJSONObject("client_info").getString("mobilesdk_app_id"));
+            out.writeUTF(client.getJSONArray("api_key").getJSONObject(0).getString("current_key"));
+            out.writeUTF(webClientId(client));
+            out.writeLong(r.issuedAt);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // In-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Registration readFields(byte[] fields) throws IOException, JSONException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(fields));
+        String companyName = in.readUTF();
+        String projectId = in.readUTF();
+        String firebaseProjectId = in.readUTF();
+        String storageBucket = in.readUTF();
+        String appId = in.readUTF();
+        String apiKey = in.readUTF();
+        String webClientId = in.readUTF();
+        long issuedAt = in.readLong();
+
+        // Rebuild a minimal google-services.json so the existing consumers work unchanged
+        JSONObject client = new JSONObject()
+                .put("client_info", new JSONObject().put("mobilesdk_app_id", appId))
+                .put("api_key", new JSONArray().put(new JSONObject().put("current_key", apiKey)))
+                .put("oauth_client", webClientId.isEmpty() ? new JSONArray() : new JSONArray()
+                        .put(new JSONObject().put("client_id", webClientId).put("client_type", 3)));
+        JSONObject root = new JSONObject()
+                .put("project_info", new JSONObject()
+                        .put("project_id", firebaseProjectId)
+                        .put("storage_bucket", storageBucket))
+                .put("client", new JSONArray().put(client));
+
+        return new Registration(companyName, projectId, root.toString(), issuedAt);
+    }
+
+    private static String webClientId(JSONObject client) throws JSONException {
+        JSONArray oauthClients = client.optJSONArray("oauth_client");
+        if (oauthClients == null) return "";
+        for (int i = 0; i < oauthClients.length(); i++) {
+            JSONObject oauthClient = oauthClients.getJSONObject(i);
+            if (oauthClient.optInt("client_type") == 3) return oauthClient.getString("client_id");
+        }
+        return "";
+    }
+
+    // Raw Deflate (no zlib header: 6 bytes fewer in the code)
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length);
+            byte[] buffer = new byte[512];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] input) throws DataFormatException {
+        Inflater inflater = new Inflater(true);
+        try {
+            // nowrap needs one extra dummy input byte (see Inflater(boolean))
+            inflater.setInput(Arrays.copyOf(input, input.length + 1));
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length * 2);
+            byte[] buffer = new byte[512];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated payload");
+                }
+                out.write(buffer, 0, n);
+                if (out.size() > MAX_INFLATED_BYTES) throw new DataFormatException("Payload too large");
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // Base45 (RFC 9285): 2 bytes -> 3 characters of the QR alphanumeric set
+
+    static String base45Encode(byte[] data) {
+        StringBuilder sb = new StringBuilder((data.length + 1) / 2 * 3);
+        for (int i = 0; i + 1 < data.length; i += 2) {
+            int n = ((data[i] & 0xff) << 8) | (data[i + 1] & 0xff);
+            sb.append(BASE45_ALPHABET.charAt(n % 45));
+            sb.append(BASE45_ALPHABET.charAt(n / 45 % 45));
+            sb.append(BASE45_ALPHABET.charAt(n / 2025));
+        }
+        if (data.length % 2 == 1) {
+            int n = data[data.length - 1] & 0xff;
+            sb.append(BASE45_ALPHABET.charAt(n % 45));
+            sb.append(BASE45_ALPHABET.charAt(n / 45));
+        }
+        return sb.toString();
+    }
+
+    static byte[] base45Decode(String text) {
+        int len = text.length();
+        if (len % 3 == 1) throw new IllegalArgumentException("Invalid Base45 length");
+        byte[] out = new byte[len / 3 * 2 + (len % 3 == 2 ? 1 : 0)];
+        int o = 0;
+        for (int i = 0; i < len; i += 3) {
+            int c = base45Digit(text.charAt(i));
+            int d = base45Digit(text.charAt(i + 1));
+            if (i + 2 < len) {
+                int n = c + d * 45 + base45Digit(text.charAt(i + 2)) * 2025;
+                if (n > 0xffff) throw new IllegalArgumentException("Invalid Base45 triplet");
+                out[o++] = (byte) (n >> 8);
+                out[o++] = (byte) n;
+            } else {
+                int n = c + d * 45;
+                if (n > 0xff) throw new IllegalArgumentException("Invalid Base45 pair");
+                out[o++] = (byte) n;
+            }
+        }
+        return out;
+    }
+
+    private static int base45Digit(char c) {
+        int digit = BASE45_ALPHABET.indexOf(c);
+        if (digit < 0) throw new IllegalArgumentException("Invalid Base45 character");
+        return digit;
+    }
+}
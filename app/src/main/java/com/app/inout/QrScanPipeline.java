@@ -0,0 +1,330 @@
+package com.inout.app.utils;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.camera.core.ImageProxy;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Camera frame pipeline for live QR scanning. Decoding itself is delegated to a
+ * BarcodeDecoder (ML Kit, ZXing, or both).
+ *
+ * Compared with handing every full frame to the decoder:
+ *
+ * - Region of interest: only the part of the frame under the on-screen guide box (plus a
+ *   margin) is decoded. The Y plane of that region is copied into an NV21 buffer with
+ *   neutral chroma, which is all a barcode detector looks at (ZXing reads the Y part as is).
+ * - Adaptive throttle: a frame is analysed only if at least dutyFactor x the recent
+ *   average decode time has passed since the last one, bounded by [minIntervalMs,
+ *   maxIntervalMs]. Fast devices scan at full rate, slow ones stop queueing work.
+ * - Resolution by device class: Config.forDevice() picks the analysis size, and whether
+ *   to race two decoders, from the media performance class, RAM class and core count.
+ *
+ * Metrics (per-frame decode latency, time to first decode, drop counts) are kept in
+ * Metrics and logged when a code is found.
+ *
+ * analyze() runs on the camera executor; the listener is always called on the main thread.
+ */
+public class QrScanPipeline {
+
+    private static final String TAG = "QrScanPipeline";
+
+    /**
+     * Tunables; use forDevice() unless testing.
+     */
+    public static class Config {
+        final Size targetResolution;
+        final float roiMargin;       // Extra fraction of the guide box decoded on each side
+        final float dutyFactor;      // Interval = dutyFactor x average decode time
+        final long minIntervalMs;
+        final long maxIntervalMs;
+        final boolean raceDecoders;  // Run both backends per frame rather than one after the other
+
+        public Config(Size targetResolution, float roiMargin, float dutyFactor, long minIntervalMs, long maxIntervalMs,
+                      boolean raceDecoders) {
+            this.targetResolution = targetResolution;
+            this.roiMargin = roiMargin;
+            this.dutyFactor = dutyFactor;
+            this.minIntervalMs = minIntervalMs;
+            this.maxIntervalMs = maxIntervalMs;
+            this.raceDecoders = raceDecoders;
+        }
+
+        public Size getTargetResolution() {
+            return targetResolution;
+        }
+
+        public boolean shouldRaceDecoders() {
+            return raceDecoders;
+        }
+
+        /**
+         * Low-end devices analyse 640x480 and leave the CPU idle half the time; others
+         * analyse 1280x720 at up to ~30 fps. Only performance-class devices race decoders.
+         */
+        public static Config forDevice(Context context) {
+            ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+            boolean lowRam = am != null && am.isLowRamDevice();
+            int cores = Runtime.getRuntime().availableProcessors();
+            int performanceClass = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S ? Build.VERSION.MEDIA_PERFORMANCE_CLASS : 0;
+
+            if (performanceClass >= Build.VERSION_CODES.S) {
+                return new Config(new Size(1280, 720), 0.15f, 1.0f, 33, 500, true);
+            }
+            if (lowRam || cores <= 4) {
+                return new Config(new Size(640, 480), 0.15f, 2.0f, 100, 1000, false);
+            }
+            return new Config(new Size(1280, 720), 0.15f, 1.5f, 50, 750, false);
+        }
+    }
+
+    /**
+     * Scan statistics since start. Thread-safe.
+     */
+    public static class Metrics {
+        private final long startMs = SystemClock.elapsedRealtime();
+        private long framesReceived;
+        private long framesThrottled;
+        private long framesDecoded;
+        private long lastDecodeMs;
+        private long maxDecodeMs;
+        private double avgDecodeMs; // Exponential moving average
+        private long timeToFirstDecodeMs = -1;
+
+        synchronized void onFrame() {
+            framesReceived++;
+        }
+
+        synchronized void onThrottled() {
+            framesThrottled++;
+        }
+
+        synchronized void onDecoded(long decodeMs) {
+            framesDecoded++;
+            lastDecodeMs = decodeMs;
+            maxDecodeMs = Math.max(maxDecodeMs, decodeMs);
+            avgDecodeMs = framesDecoded == 1 ? decodeMs : avgDecodeMs * 0.8 + decodeMs * 0.2;
+        }
+
+        synchronized void onFound() {
+            if (timeToFirstDecodeMs < 0) timeToFirstDecodeMs = SystemClock.elapsedRealtime() - startMs;
+        }
+
+        public synchronized double getAverageDecodeMs() {
+            return avgDecodeMs;
+        }
+
+        public synchronized long getLastDecodeMs() {
+            return lastDecodeMs;
+        }
+
+        public synchronized long getMaxDecodeMs() {
+            return maxDecodeMs;
+        }
+
+        /**
+         * Milliseconds from pipeline start to the first frame containing a code, or -1.
+         */
+        public synchronized long getTimeToFirstDecodeMs() {
+            return timeToFirstDecodeMs;
+        }
+
+        public synchronized long getFramesReceived() {
+            return framesReceived;
+        }
+
+        public synchronized long getFramesThrottled() {
+            return framesThrottled;
+        }
+
+        public synchronized long getFramesDecoded() {
+            return framesDecoded;
+        }
+
+        @NonNull
+        @Override
+        public synchronized String toString() {
+            return String.format(java.util.Locale.US,
+                    "frames %d (decoded %d, throttled %d), decode avg %.1fms max %dms, first code after %dms",
+                    framesReceived, framesDecoded, framesThrottled, avgDecodeMs, maxDecodeMs, timeToFirstDecodeMs);
+        }
+    }
+
+    public interface Listener {
+        void onCode(String rawValue);
+    }
+
+    private final Config config;
+    private final BarcodeDecoder decoder;
+    private final Listener listener;
+    private final Metrics metrics = new Metrics();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Guide box in PreviewView coordinates (FILL_CENTER), set from the UI thread
+    private volatile int viewWidth, viewHeight;
+    private volatile Rect guideInView;
+
+    private long lastAnalyzedMs;
+    private byte[] nv21; // Reused between frames of the same crop size
+
+    public QrScanPipeline(Config config, BarcodeDecoder decoder, Listener listener) {
+        this.config = config;
+        this.decoder = decoder;
+        this.listener = listener;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @param guide Guide box in the preview's coordinates. Until set, whole frames are decoded.
+     */
+    public void setGuide(int previewWidth, int previewHeight, Rect guide) {
+        viewWidth = previewWidth;
+        viewHeight = previewHeight;
+        guideInView = new Rect(guide);
+    }
+
+    /**
+     * ImageAnalysis.Analyzer entry point. Always closes the frame.
+     */
+    public void analyze(@NonNull ImageProxy imageProxy) {
+        metrics.onFrame();
+        long now = SystemClock.elapsedRealtime();
+        long interval = (long) Math.min(config.maxIntervalMs,
+                Math.max(config.minIntervalMs, config.dutyFactor * metrics.getAverageDecodeMs()));
+        if (now - lastAnalyzedMs < interval) {
+            metrics.onThrottled();
+            imageProxy.close();
+            return;
+        }
+        lastAnalyzedMs = now;
+
+        BarcodeDecoder.Frame frame;
+        try {
+            frame = cropToGuide(imageProxy);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Frame conversion failed", e);
+            imageProxy.close();
+            return;
+        }
+        long start = SystemClock.elapsedRealtime();
+        decoder.decode(frame, new BarcodeDecoder.Callback() {
+            @Override
+            public void onFound(String rawValue) {
+                metrics.onFound();
+                Log.d(TAG, "Code found by " + decoder.getName() + ": " + metrics);
+                mainHandler.post(() -> listener.onCode(rawValue));
+            }
+
+            @Override
+            public void onDone(@Nullable Exception error) {
+                metrics.onDecoded(SystemClock.elapsedRealtime() - start);
+                if (error != null) Log.e(TAG, "Camera QR analysis failed", error);
+                // Holding the frame until the decode ends keeps one decode in flight, so the
+                // reused NV21 buffer is never overwritten under the decoder
+                imageProxy.close();
+            }
+        });
+    }
+
+    /**
+     * Copies the region of interest out of the Y plane into an NV21 image with gray chroma.
+     */
+    private BarcodeDecoder.Frame cropToGuide(ImageProxy imageProxy) {
+        int width = imageProxy.getWidth();
+        int height = imageProxy.getHeight();
+        int rotation = imageProxy.getImageInfo().getRotationDegrees();
+        Rect crop = regionOfInterest(width, height, rotation);
+
+        ImageProxy.PlaneProxy yPlane = imageProxy.getPlanes()[0];
+        ByteBuffer y = yPlane.getBuffer();
+        int rowStride = yPlane.getRowStride();
+        int pixelStride = yPlane.getPixelStride();
+
+        int w = crop.width();
+        int h = crop.height();
+        int size = w * h + w * h / 2;
+        if (nv21 == null || nv21.length != size) {
+            nv21 = new byte[size];
+            Arrays.fill(nv21, w * h, size, (byte) 128); // Neutral chroma, written once
+        }
+
+        if (pixelStride == 1) {
+            for (int row = 0; row < h; row++) {
+                y.position((crop.top + row) * rowStride + crop.left);
+                y.get(nv21, row * w, w);
+            }
+        } else {
+            for (int row = 0; row < h; row++) {
+                int base = (crop.top + row) * rowStride + crop.left * pixelStride;
+                for (int col = 0; col < w; col++) nv21[row * w + col] = y.get(base + col * pixelStride);
+            }
+        }
+        return new BarcodeDecoder.Frame(nv21, w, h, rotation);
+    }
+
+    /**
+     * The guide box (plus margin) in buffer coordinates; the whole frame if no guide is set.
+     * Dimensions are even, as NV21 requires.
+     */
+    Rect regionOfInterest(int width, int height, int rotation) {
+        Rect guide = guideInView;
+        if (guide == null || viewWidth == 0 || viewHeight == 0) return new Rect(0, 0, width & ~1, height & ~1);
+
+        // Frame as displayed (upright)
+        boolean swap = rotation == 90 || rotation == 270;
+        int shownW = swap ? height : width;
+        int shownH = swap ? width : height;
+
+        // PreviewView FILL_CENTER: scale to cover the view, centre, crop the overflow
+        float scale = Math.max((float) viewWidth / shownW, (float) viewHeight / shownH);
+        float offsetX = (shownW * scale - viewWidth) / 2f;
+        float offsetY = (shownH * scale - viewHeight) / 2f;
+        float marginX = guide.width() * config.roiMargin;
+        float marginY = guide.height() * config.roiMargin;
+        int l = clamp((guide.left - marginX + offsetX) / scale, shownW);
+        int t = clamp((guide.top - marginY + offsetY) / scale, shownH);
+        int r = clamp((guide.right + marginX + offsetX) / scale, shownW);
+        int b = clamp((guide.bottom + marginY + offsetY) / scale, shownH);
+
+        // Back to the sensor buffer's orientation
+        Rect crop;
+        switch (rotation) {
+            case 90:
+                crop = new Rect(t, height - r, b, height - l);
+                break;
+            case 180:
+                crop = new Rect(width - r, height - b, width - l, height - t);
+                break;
+            case 270:
+                crop = new Rect(width - b, l, width - t, r);
+                break;
+            default:
+                crop = new Rect(l, t, r, b);
+        }
+        crop.left &= ~1;
+        crop.top &= ~1;
+        crop.right = crop.left + Math.max(2, crop.width() & ~1);
+        crop.bottom = crop.top + Math.max(2, crop.height() & ~1);
+        if (crop.right > width || crop.bottom > height) return new Rect(0, 0, width & ~1, height & ~1);
+        return crop;
+    }
+
+    private static int clamp(float value, int max) {
+        return Math.max(0, Math.min(max, Math.round(value)));
+    }
+}
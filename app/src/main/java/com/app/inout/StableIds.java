@@ -0,0 +1,24 @@
+package com.inout.app.adapters;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Maps Firestore document ids to the long ids RecyclerView needs for stable ids.
+ */
+final class StableIds {
+
+    private StableIds() {}
+
+    /**
+     * 64-bit FNV-1a hash; String.hashCode() is only 32 bits and collides too easily on large lists.
+     */
+    static long of(String key) {
+        if (key == null) return RecyclerView.NO_ID;
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
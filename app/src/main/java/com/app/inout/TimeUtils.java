@@ -45,12 +45,35 @@ public class TimeUtils {
         return System.currentTimeMillis();
     }
 
+    /**
+     * @return Display time for an epoch-millis instant (e.g., "09:30 AM").
+     */
+    public static String formatTime(long millis) {
+        return TIME_DISPLAY_FORMAT.format(new Date(millis));
+    }
+
+    /**
+     * @return Whole minutes between two epoch-millis instants, never negative.
+     */
+    public static int minutesBetween(long startMillis, long endMillis) {
+        if (startMillis <= 0 || endMillis <= startMillis) return 0;
+        return (int) ((endMillis - startMillis) / 60_000L);
+    }
+
+    /**
+     * Formats a worked duration (e.g., 480 -> "8h 00m").
+     */
+    public static String formatDuration(int minutes) {
+        return String.format(Locale.US, "%dh %02dm", minutes / 60, minutes % 60);
+    }
+
     /**
      * Calculates the duration between two time strings (e.g., "09:00 AM" and "05:00 PM").
      *
      * @param checkInTimeStr  The check-in time string.
      * @param checkOutTimeStr The check-out time string.
      * @return A formatted string like "8h 00m" or "N/A" if parsing fails.
+     * Only needed for legacy records without checkInAt; new records use minutesBetween().
      */
     public static String calculateDuration(String checkInTimeStr, String checkOutTimeStr) {
         if (checkInTimeStr == null || checkOutTimeStr == null) return "0h 00m";
@@ -83,4 +106,18 @@ public class TimeUtils {
     public static String formatTimestampToDate(long timestamp) {
         return DATE_ID_FORMAT.format(new Date(timestamp));
     }
+
+    /**
+     * @return Month part of a date id (e.g., "2026-01" for "2026-01-22"), used for monthly attendance shards.
+     */
+    public static String getMonthId(String dateId) {
+        return dateId.substring(0, 7);
+    }
+
+    /**
+     * @return Day-of-month key of a date id (e.g., "22" for "2026-01-22").
+     */
+    public static String getDayKey(String dateId) {
+        return dateId.substring(8, 10);
+    }
 }
\ No newline at end of file
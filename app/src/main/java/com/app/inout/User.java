@@ -1,7 +1,11 @@
 package com.inout.app.models;
 
+import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.IgnoreExtraProperties;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Model class representing a user in the 'users' Firestore collection.
  */
@@ -20,6 +24,9 @@ public class User {
     // For Employees: The ID of the location they are assigned to for check-in
     private String assignedLocationId; 
 
+    // For Employees who rotate between sites: every location they may check in at
+    private List<String> assignedLocationIds;
+
     public User() {
         // Default constructor required for calls to DataSnapshot.getValue(User.class)
     }
@@ -97,6 +104,18 @@ public class User {
         this.photoUrl = photoUrl;
     }
 
+    /**
+     * All locations this employee may check in at: the assigned set, or the single
+     * assignedLocationId for accounts approved before multi-site assignment existed.
+     */
+    @Exclude
+    public List<String> getAllowedLocationIds() {
+        List<String> ids = new ArrayList<>();
+        if (assignedLocationIds != null) ids.addAll(assignedLocationIds);
+        if (assignedLocationId != null && !ids.contains(assignedLocationId)) ids.add(0, assignedLocationId);
+        return ids;
+    }
+
     public String getAssignedLocationId() {
         return assignedLocationId;
     }
@@ -104,4 +123,12 @@ public class User {
     public void setAssignedLocationId(String assignedLocationId) {
         this.assignedLocationId = assignedLocationId;
     }
-}
\ No newline at end of file
+
+    public List<String> getAssignedLocationIds() {
+        return assignedLocationIds;
+    }
+
+    public void setAssignedLocationIds(List<String> assignedLocationIds) {
+        this.assignedLocationIds = assignedLocationIds;
+    }
+}
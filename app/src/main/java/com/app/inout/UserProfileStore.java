@@ -0,0 +1,109 @@
+package com.inout.app.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.inout.app.models.User;
+
+/**
+ * Process-wide store for the logged-in user's profile (users/{uid}).
+ *
+ * Exactly one snapshot listener is attached while any screen observes the store,
+ * each change is deserialized once, and the resulting User is shared by every
+ * observer. Switching tabs re-uses the cached value and costs no Firestore reads.
+ */
+public class UserProfileStore extends LiveData<User> {
+
+    private static final String TAG = "UserProfileStore";
+
+    // Keep the listener briefly after the last observer leaves (rotation, profile screen on top)
+    private static final long LINGER_MS = 10_000;
+
+    private static UserProfileStore instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable detachRunnable = this::detach;
+
+    private ListenerRegistration registration;
+    private String uid;
+
+    private UserProfileStore() {}
+
+    public static synchronized UserProfileStore getInstance() {
+        if (instance == null) {
+            instance = new UserProfileStore();
+        }
+        return instance;
+    }
+
+    /**
+     * @return The last profile received, or null if none has arrived yet.
+     */
+    @Nullable
+    public User getCachedUser() {
+        return getValue();
+    }
+
+    /**
+     * Drops the listener and the cached profile. Call on logout.
+     */
+    public void clear() {
+        mainHandler.removeCallbacks(detachRunnable);
+        detach();
+        uid = null;
+        setValue(null);
+    }
+
+    @Override
+    protected void onActive() {
+        mainHandler.removeCallbacks(detachRunnable);
+
+        FirebaseUser firebaseUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (firebaseUser == null) return;
+
+        if (!firebaseUser.getUid().equals(uid)) {
+            // A different account signed in: never hand out the previous user's profile
+            detach();
+            uid = firebaseUser.getUid();
+            setValue(null);
+        }
+        if (registration == null) attach();
+    }
+
+    @Override
+    protected void onInactive() {
+        mainHandler.postDelayed(detachRunnable, LINGER_MS);
+    }
+
+    private void attach() {
+        registration = FirebaseFirestore.getInstance().collection("users").document(uid)
+                .addSnapshotListener((snapshot, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Profile listener failed", error);
+                        return;
+                    }
+                    if (snapshot == null || !snapshot.exists()) return;
+
+                    User user = snapshot.toObject(User.class);
+                    if (user != null) {
+                        user.setUid(snapshot.getId());
+                        setValue(user);
+                    }
+                });
+    }
+
+    private void detach() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.inout.app.utils;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * ZXing backend. Reads the luma plane in place through PlanarYUVLuminanceSource: no RGB
+ * conversion, no Bitmap, and no copy beyond the pipeline's crop. QR detection finds the
+ * finder patterns at any orientation, so the frame rotation is ignored.
+ *
+ * Decodes synchronously on the calling thread. Not thread-safe; use one instance per
+ * analysis thread. Depends only on zxing core, so it also runs on a plain JVM.
+ *
+ * The finder-pattern search is fooled by some data layouts: about 2-4% of random version 12
+ * codes (a compact registration code) fail even when rendered cleanly. The nonce makes
+ * every generated code different, so keep ML Kit behind it (FALLBACK or RACE).
+ */
+public class ZxingBarcodeDecoder implements BarcodeDecoder {
+
+    private final QRCodeReader reader = new QRCodeReader();
+    private final Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+
+    /**
+     * @param tryHarder Spend more time on damaged or low-contrast codes.
+     */
+    public ZxingBarcodeDecoder(boolean tryHarder) {
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(BarcodeFormat.QR_CODE));
+        if (tryHarder) hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+    }
+
+    @Override
+    public void decode(Frame frame, Callback callback) {
+        String raw;
+        try {
+            raw = decode(frame.data, frame.width, frame.height);
+        } catch (RuntimeException e) {
+            callback.onDone(e);
+            return;
+        }
+        if (raw != null) callback.onFound(raw);
+        callback.onDone(null);
+    }
+
+    /**
+     * Decodes a width x height luma plane; returns the text or null if no code was found.
+     */
+    public String decode(byte[] luma, int width, int height) {
+        PlanarYUVLuminanceSource source =
+                new PlanarYUVLuminanceSource(luma, width, height, 0, 0, width, height, false);
+        try {
+            Result result = reader.decode(new BinaryBitmap(new HybridBinarizer(source)), hints);
+            return result.getText();
+        } catch (ReaderException e) {
+            // Not found, checksum or format error: nothing usable in this frame
+            return null;
+        } finally {
+            reader.reset();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "zxing";
+    }
+
+    @Override
+    public void close() {
+        // Nothing held
+    }
+}
@@ -0,0 +1,193 @@
+package com.inout.app.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CompositeBarcodeDecoderTest {
+
+    private static final BarcodeDecoder.Frame FRAME = new BarcodeDecoder.Frame(new byte[6], 2, 2, 0);
+
+    private final List<String> log = new ArrayList<>();   // Backend calls, in order
+    private final List<String> events = new ArrayList<>(); // What the pipeline sees
+
+    @Test
+    public void fallbackSkipsSecondWhenFirstFinds() {
+        FakeDecoder first = FakeDecoder.finding("a", "code", log);
+        FakeDecoder second = FakeDecoder.finding("b", "other", log);
+        decode(CompositeBarcodeDecoder.FALLBACK, first, second);
+
+        assertEquals(Collections.singletonList("a"), log);
+        assertEquals(Arrays.asList("found code", "done null"), events);
+    }
+
+    @Test
+    public void fallbackTriesSecondOnAMiss() {
+        FakeDecoder first = FakeDecoder.finding("a", null, log);
+        FakeDecoder second = FakeDecoder.finding("b", "code", log);
+        decode(CompositeBarcodeDecoder.FALLBACK, first, second);
+
+        assertEquals(Arrays.asList("a", "b"), log);
+        assertSame(FRAME, second.lastFrame);
+        assertEquals(Arrays.asList("found code", "done null"), events);
+    }
+
+    @Test
+    public void fallbackReportsErrorOnlyIfTheLastBackendFails() {
+        decode(CompositeBarcodeDecoder.FALLBACK,
+                FakeDecoder.failing("a", "a broke", log), FakeDecoder.finding("b", null, log));
+        assertEquals(Collections.singletonList("done null"), events);
+
+        events.clear();
+        decode(CompositeBarcodeDecoder.FALLBACK,
+                FakeDecoder.failing("a", "a broke", log), FakeDecoder.failing("b", "b broke", log));
+        assertEquals(Collections.singletonList("done b broke"), events);
+    }
+
+    @Test
+    public void fallbackWaitsForAnAsynchronousFirstBackend() {
+        FakeDecoder first = FakeDecoder.async("a", log);
+        FakeDecoder second = FakeDecoder.finding("b", "code", log);
+        decode(CompositeBarcodeDecoder.FALLBACK, first, second);
+        assertEquals(Collections.singletonList("a"), log);
+        assertTrue(events.isEmpty());
+
+        first.complete(null, null);
+        assertEquals(Arrays.asList("a", "b"), log);
+        assertEquals(Arrays.asList("found code", "done null"), events);
+    }
+
+    @Test
+    public void raceStartsSecondBackendFirst() {
+        decode(CompositeBarcodeDecoder.RACE, FakeDecoder.finding("a", null, log), FakeDecoder.finding("b", null, log));
+        assertEquals(Arrays.asList("b", "a"), log);
+        assertEquals(Collections.singletonList("done null"), events);
+    }
+
+    @Test
+    public void raceReportsFirstResultOnceAndReleasesAfterBoth() {
+        FakeDecoder first = FakeDecoder.finding("a", "code", log);
+        FakeDecoder second = FakeDecoder.async("b", log);
+        decode(CompositeBarcodeDecoder.RACE, first, second);
+
+        // Found as soon as the synchronous backend has it, but the frame is still in use
+        assertEquals(Collections.singletonList("found code"), events);
+
+        second.complete("code", null);
+        assertEquals(Arrays.asList("found code", "done null"), events);
+    }
+
+    @Test
+    public void raceIgnoresOneFailingBackend() {
+        FakeDecoder second = FakeDecoder.async("b", log);
+        decode(CompositeBarcodeDecoder.RACE, FakeDecoder.failing("a", "a broke", log), second);
+        second.complete("code", null);
+        assertEquals(Arrays.asList("found code", "done null"), events);
+
+        events.clear();
+        second = FakeDecoder.async("b", log);
+        decode(CompositeBarcodeDecoder.RACE, FakeDecoder.failing("a", "a broke", log), second);
+        second.complete(null, null);
+        assertEquals(Collections.singletonList("done null"), events);
+    }
+
+    @Test
+    public void raceReportsErrorWhenBothFail() {
+        FakeDecoder second = FakeDecoder.async("b", log);
+        decode(CompositeBarcodeDecoder.RACE, FakeDecoder.failing("a", "a broke", log), second);
+        second.complete(null, "b broke");
+
+        // The error of whichever backend finished last
+        assertEquals(Collections.singletonList("done b broke"), events);
+    }
+
+    @Test
+    public void nameAndClose() {
+        FakeDecoder first = FakeDecoder.finding("zxing", null, log);
+        FakeDecoder second = FakeDecoder.finding("mlkit", null, log);
+        assertEquals("zxing|mlkit", new CompositeBarcodeDecoder(CompositeBarcodeDecoder.RACE, first, second).getName());
+        CompositeBarcodeDecoder fallback = new CompositeBarcodeDecoder(CompositeBarcodeDecoder.FALLBACK, first, second);
+        assertEquals("zxing>mlkit", fallback.getName());
+
+        fallback.close();
+        assertTrue(first.closed && second.closed);
+    }
+
+    private void decode(int mode, BarcodeDecoder first, BarcodeDecoder second) {
+        new CompositeBarcodeDecoder(mode, first, second).decode(FRAME, ZxingBarcodeDecoderTest.recorder(events));
+    }
+
+    /**
+     * Finds a fixed value (or nothing), fails, or holds the callback until complete().
+     */
+    private static final class FakeDecoder implements BarcodeDecoder {
+        private final String name;
+        private final String result;
+        private final String error;
+        private final boolean async;
+        private final List<String> log;
+
+        Frame lastFrame;
+        Callback pending;
+        boolean closed;
+
+        private FakeDecoder(String name, String result, String error, boolean async, List<String> log) {
+            this.name = name;
+            this.result = result;
+            this.error = error;
+            this.async = async;
+            this.log = log;
+        }
+
+        static FakeDecoder finding(String name, String result, List<String> log) {
+            return new FakeDecoder(name, result, null, false, log);
+        }
+
+        static FakeDecoder failing(String name, String error, List<String> log) {
+            return new FakeDecoder(name, null, error, false, log);
+        }
+
+        static FakeDecoder async(String name, List<String> log) {
+            return new FakeDecoder(name, null, null, true, log);
+        }
+
+        @Override
+        public void decode(Frame frame, Callback callback) {
+            log.add(name);
+            lastFrame = frame;
+            if (async) {
+                pending = callback;
+            } else {
+                report(callback, result, error);
+            }
+        }
+
+        void complete(String result, String error) {
+            Callback callback = pending;
+            pending = null;
+            report(callback, result, error);
+        }
+
+        private static void report(Callback callback, String result, String error) {
+            if (result != null) callback.onFound(result);
+            callback.onDone(error != null ? new Exception(error) : null);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.inout.app.utils;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Per-call cost of the distance kernels. Skipped unless run with ./gradlew test -Pbenchmark.
+ */
+public class GeoDistanceBenchmark {
+
+    private static final int WARMUP = 500_000;
+    private static final int CALLS = 5_000_000;
+
+    @Before
+    public void onlyWhenRequested() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void kernels() {
+        GeoDistance.Frame frame = new GeoDistance.Frame(51.5007, -0.1246, 100);
+        double sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += GeoDistance.haversine(51.5, -0.12, 51.5 + i * 1e-9, -0.12) + frame.distance(51.5 + i * 1e-9, -0.12);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) sink += GeoDistance.haversine(51.5, -0.12, 51.5 + i * 1e-9, -0.12);
+        long haversineNs = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) sink += frame.distance(51.5 + i * 1e-9, -0.12);
+        long distanceNs = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) sink += frame.within(51.5 + i * 1e-9, -0.12) ? 1 : 0;
+        long withinNs = System.nanoTime() - start;
+
+        System.out.printf("haversine %.1f ns/call, Frame.distance %.1f ns/call, Frame.within %.1f ns/call (sink %s)%n",
+                (double) haversineNs / CALLS, (double) distanceNs / CALLS, (double) withinNs / CALLS, sink > 0);
+    }
+}
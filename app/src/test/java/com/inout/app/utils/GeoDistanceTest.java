@@ -0,0 +1,168 @@
+package com.inout.app.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+/**
+ * Checks the error bounds documented on GeoDistance against Vincenty's inverse solution on
+ * the WGS84 ellipsoid (what Location.distanceBetween() computes), and that the kernels do
+ * not allocate.
+ */
+public class GeoDistanceTest {
+
+    private static final int SAMPLES = 20_000;
+
+    @Test
+    public void haversineWithin056PercentOfEllipsoid() {
+        Random random = new Random(17);
+        double worst = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double lat1 = random.nextDouble() * 170 - 85;
+            double lng1 = random.nextDouble() * 360 - 180;
+            double lat2 = random.nextDouble() * 170 - 85;
+            double lng2 = random.nextDouble() * 360 - 180;
+            double reference = vincenty(lat1, lng1, lat2, lng2);
+            if (Double.isNaN(reference) || reference < 1) continue; // Near-antipodal: no convergence
+            worst = Math.max(worst, Math.abs(GeoDistance.haversine(lat1, lng1, lat2, lng2) - reference) / reference);
+        }
+        // Measured: 0.5465%
+        assertTrue("worst " + worst, worst <= 0.0056);
+    }
+
+    @Test
+    public void haversineOnFenceScaleDistances() {
+        // ~100 m office radius: the documented ≤ 0.6 m
+        Random random = new Random(18);
+        for (int i = 0; i < SAMPLES; i++) {
+            double lat = random.nextDouble() * 170 - 85;
+            double lng = random.nextDouble() * 360 - 180;
+            double bearing = random.nextDouble() * 2 * Math.PI;
+            double lat2 = lat + Math.cos(bearing) * 100 / 111_000.0;
+            double lng2 = lng + Math.sin(bearing) * 100 / (111_000.0 * Math.cos(Math.toRadians(lat)));
+            double reference = vincenty(lat, lng, lat2, lng2);
+            assertEquals(reference, GeoDistance.haversine(lat, lng, lat2, lng2), 0.6);
+        }
+    }
+
+    @Test
+    public void frameWithinTenthOfPercentOfHaversineNearOrigin() {
+        Random random = new Random(19);
+        double worst = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double lat = random.nextDouble() * 140 - 70;
+            double lng = random.nextDouble() * 360 - 180;
+            GeoDistance.Frame frame = new GeoDistance.Frame(lat, lng, 0);
+            double[] p = offset(lat, lng, random.nextDouble() * 10_000, random.nextDouble() * 2 * Math.PI);
+            double spherical = GeoDistance.haversine(lat, lng, p[0], p[1]);
+            if (spherical < 1) continue;
+            worst = Math.max(worst, Math.abs(frame.distance(p[0], p[1]) - spherical) / spherical);
+        }
+        // Measured: 0.0769%
+        assertTrue("worst " + worst, worst <= 0.001);
+    }
+
+    @Test
+    public void frameHandlesAntimeridian() {
+        // The two points are ~111 m apart across the antimeridian, not ~40,000 km
+        GeoDistance.Frame frame = new GeoDistance.Frame(0, 179.9995, 120);
+        double reference = GeoDistance.haversine(0, 179.9995, 0, -179.9995);
+        assertEquals(reference, frame.distance(0, -179.9995), 0.01);
+        assertTrue(frame.within(0, -179.9995));
+    }
+
+    @Test
+    public void withinMatchesDistance() {
+        GeoDistance.Frame frame = new GeoDistance.Frame(48.8584, 2.2945, 100);
+        double[] inside = offset(48.8584, 2.2945, 99, 1.0);
+        double[] outside = offset(48.8584, 2.2945, 101, 1.0);
+        assertTrue(frame.within(inside[0], inside[1]));
+        assertFalse(frame.within(outside[0], outside[1]));
+        assertTrue(frame.within(outside[0], outside[1], 102));
+    }
+
+    @Test
+    public void kernelsDoNotAllocate() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+
+        GeoDistance.Frame frame = new GeoDistance.Frame(51.5007, -0.1246, 100);
+        double sink = 0;
+        // Warm up so the measured loops run compiled
+        for (int i = 0; i < 200_000; i++) sink += loop(frame, i);
+
+        long id = Thread.currentThread().getId();
+        int calls = 200_000;
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < calls; i++) sink += GeoDistance.haversine(51.5, -0.12, 51.5 + i * 1e-9, -0.12);
+        for (int i = 0; i < calls; i++) sink += frame.within(51.5 + i * 1e-9, -0.12) ? 1 : 0;
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+        assertTrue(sink > 0);
+        // A few KB of slack for the measurement itself; a per-call allocation would be several MB
+        assertTrue("allocated " + allocated, allocated < 64 * 1024);
+    }
+
+    private static double loop(GeoDistance.Frame frame, int i) {
+        return GeoDistance.haversine(51.5, -0.12, 51.5 + i * 1e-9, -0.12) + frame.distanceSquared(51.5 + i * 1e-9, -0.12);
+    }
+
+    /**
+     * Destination at a distance and bearing on the sphere.
+     */
+    private static double[] offset(double lat, double lng, double meters, double bearing) {
+        double d = meters / GeoDistance.EARTH_RADIUS_METERS;
+        double phi = Math.toRadians(lat);
+        double phi2 = Math.asin(Math.sin(phi) * Math.cos(d) + Math.cos(phi) * Math.sin(d) * Math.cos(bearing));
+        double lambda2 = Math.toRadians(lng) + Math.atan2(Math.sin(bearing) * Math.sin(d) * Math.cos(phi),
+                Math.cos(d) - Math.sin(phi) * Math.sin(phi2));
+        return new double[]{Math.toDegrees(phi2), Math.toDegrees(lambda2)};
+    }
+
+    /**
+     * Vincenty's inverse formula on WGS84; NaN if it does not converge (near-antipodal points).
+     */
+    static double vincenty(double lat1, double lng1, double lat2, double lng2) {
+        double a = 6_378_137.0, f = 1 / 298.257223563, b = a * (1 - f);
+        double L = Math.toRadians(lng2 - lng1);
+        double U1 = Math.atan((1 - f) * Math.tan(Math.toRadians(lat1)));
+        double U2 = Math.atan((1 - f) * Math.tan(Math.toRadians(lat2)));
+        double sinU1 = Math.sin(U1), cosU1 = Math.cos(U1), sinU2 = Math.sin(U2), cosU2 = Math.cos(U2);
+
+        double lambda = L, lambdaP;
+        double sinSigma, cosSigma, sigma, cosSqAlpha, cos2SigmaM;
+        int iterations = 200;
+        do {
+            double sinLambda = Math.sin(lambda), cosLambda = Math.cos(lambda);
+            sinSigma = Math.sqrt((cosU2 * sinLambda) * (cosU2 * sinLambda)
+                    + (cosU1 * sinU2 - sinU1 * cosU2 * cosLambda) * (cosU1 * sinU2 - sinU1 * cosU2 * cosLambda));
+            if (sinSigma == 0) return 0;
+            cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1 - sinAlpha * sinAlpha;
+            cos2SigmaM = cosSqAlpha == 0 ? 0 : cosSigma - 2 * sinU1 * sinU2 / cosSqAlpha;
+            double C = f / 16 * cosSqAlpha * (4 + f * (4 - 3 * cosSqAlpha));
+            lambdaP = lambda;
+            lambda = L + (1 - C) * f * sinAlpha
+                    * (sigma + C * sinSigma * (cos2SigmaM + C * cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)));
+        } while (Math.abs(lambda - lambdaP) > 1e-12 && --iterations > 0);
+        if (iterations == 0) return Double.NaN;
+
+        double uSq = cosSqAlpha * (a * a - b * b) / (b * b);
+        double A = 1 + uSq / 16384 * (4096 + uSq * (-768 + uSq * (320 - 175 * uSq)));
+        double B = uSq / 1024 * (256 + uSq * (-128 + uSq * (74 - 47 * uSq)));
+        double deltaSigma = B * sinSigma * (cos2SigmaM + B / 4 * (cosSigma * (-1 + 2 * cos2SigmaM * cos2SigmaM)
+                - B / 6 * cos2SigmaM * (-3 + 4 * sinSigma * sinSigma) * (-3 + 4 * cos2SigmaM * cos2SigmaM)));
+        return b * A * (sigma - deltaSigma);
+    }
+}
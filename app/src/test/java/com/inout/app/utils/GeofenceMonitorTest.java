@@ -0,0 +1,155 @@
+package com.inout.app.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.inout.app.models.CompanyConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * GeofenceMonitor against a fake provider, with in-memory storage.
+ */
+public class GeofenceMonitorTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long MAX_AGE = GeofenceMonitor.RECENT_ENTER_MS;
+
+    /**
+     * Records what the monitor registered instead of talking to Play Services.
+     */
+    private static class FakeProvider implements GeofenceProvider {
+        final List<List<String>> registrations = new ArrayList<>();
+        int unregisterCalls;
+
+        @Override
+        public void register(Collection<CompanyConfig> sites) {
+            List<String> ids = new ArrayList<>();
+            for (CompanyConfig site : sites) ids.add(site.getId());
+            registrations.add(ids);
+        }
+
+        @Override
+        public void unregisterAll() {
+            unregisterCalls++;
+        }
+    }
+
+    private FakeProvider provider;
+    private GeofenceMonitor monitor;
+
+    @Before
+    public void setUp() {
+        provider = new FakeProvider();
+        monitor = new GeofenceMonitor(provider, null);
+    }
+
+    @Test
+    public void recentEnterIsReported() {
+        monitor.recordTransition("hq", true, NOW - 60_000, 12.97, 77.59, 20f);
+
+        GeofenceMonitor.Transition enter = monitor.recentEnter(ids("hq"), NOW, MAX_AGE);
+        assertNotNull(enter);
+        assertEquals("hq", enter.locationId);
+        assertEquals(12.97, enter.latitude, 0);
+        assertEquals(20f, enter.accuracy, 0);
+    }
+
+    @Test
+    public void enterExpiresAfterMaxAge() {
+        monitor.recordTransition("hq", true, NOW - MAX_AGE, 0, 0, 0);
+        assertNotNull(monitor.recentEnter(ids("hq"), NOW, MAX_AGE));
+
+        monitor.recordTransition("hq", true, NOW - MAX_AGE - 1, 0, 0, 0); // Older: ignored
+        assertNotNull(monitor.recentEnter(ids("hq"), NOW, MAX_AGE));
+        assertNull(monitor.recentEnter(ids("hq"), NOW + 1, MAX_AGE));
+    }
+
+    @Test
+    public void enterFromTheFutureIsIgnored() {
+        // Wall clock moved backwards since the ENTER
+        monitor.recordTransition("hq", true, NOW + 5_000, 0, 0, 0);
+        assertNull(monitor.recentEnter(ids("hq"), NOW, MAX_AGE));
+    }
+
+    @Test
+    public void exitClearsEnter() {
+        monitor.recordTransition("hq", true, NOW - 120_000, 0, 0, 0);
+        monitor.recordTransition("hq", false, NOW - 60_000, 0, 0, 0);
+        assertNull(monitor.recentEnter(ids("hq"), NOW, MAX_AGE));
+
+        monitor.recordTransition("hq", true, NOW - 30_000, 0, 0, 0);
+        assertNotNull(monitor.recentEnter(ids("hq"), NOW, MAX_AGE));
+    }
+
+    @Test
+    public void outOfOrderTransitionsKeepTheNewest() {
+        // Batched delivery: the EXIT arrives before the earlier ENTER
+        monitor.recordTransition("hq", false, NOW - 60_000, 0, 0, 0);
+        monitor.recordTransition("hq", true, NOW - 120_000, 0, 0, 0);
+        assertNull(monitor.recentEnter(ids("hq"), NOW, MAX_AGE));
+
+        // And the other way round
+        monitor.recordTransition("branch", true, NOW - 60_000, 0, 0, 0);
+        monitor.recordTransition("branch", false, NOW - 120_000, 0, 0, 0);
+        assertNotNull(monitor.recentEnter(ids("branch"), NOW, MAX_AGE));
+    }
+
+    @Test
+    public void newestEnterAmongSitesWins() {
+        monitor.recordTransition("hq", true, NOW - 300_000, 0, 0, 0);
+        monitor.recordTransition("branch", true, NOW - 60_000, 0, 0, 0);
+        monitor.recordTransition("other", true, NOW - 10_000, 0, 0, 0);
+
+        GeofenceMonitor.Transition enter = monitor.recentEnter(ids("hq", "branch"), NOW, MAX_AGE);
+        assertNotNull(enter);
+        assertEquals("branch", enter.locationId); // "other" is not among the asked sites
+    }
+
+    @Test
+    public void registerPrunesUnassignedSites() {
+        monitor.recordTransition("hq", true, NOW - 60_000, 0, 0, 0);
+        monitor.recordTransition("branch", true, NOW - 60_000, 0, 0, 0);
+
+        monitor.register(Collections.singletonList(site("branch")));
+
+        assertEquals(Collections.singletonList(Collections.singletonList("branch")), provider.registrations);
+        assertNull(monitor.recentEnter(ids("hq"), NOW, MAX_AGE));
+        assertNotNull(monitor.recentEnter(ids("branch"), NOW, MAX_AGE));
+
+        // Re-assigning the site does not bring the forgotten ENTER back
+        monitor.register(Arrays.asList(site("hq"), site("branch")));
+        assertEquals(2, provider.registrations.size());
+        assertNull(monitor.recentEnter(ids("hq"), NOW, MAX_AGE));
+    }
+
+    @Test
+    public void clearUnregistersAndForgets() {
+        monitor.register(Collections.singletonList(site("hq")));
+        monitor.recordTransition("hq", true, NOW - 60_000, 0, 0, 0);
+
+        monitor.clear();
+
+        assertEquals(1, provider.unregisterCalls);
+        assertNull(monitor.recentEnter(ids("hq"), NOW, MAX_AGE));
+    }
+
+    private static CompanyConfig site(String id) {
+        CompanyConfig config = new CompanyConfig(id, 12.97, 77.59);
+        config.setId(id);
+        config.setRadius(100);
+        return config;
+    }
+
+    private static List<String> ids(String... ids) {
+        return Arrays.asList(ids);
+    }
+}
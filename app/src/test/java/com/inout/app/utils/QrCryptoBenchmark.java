@@ -0,0 +1,135 @@
+package com.inout.app.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * What QrCryptoEngine's caching saves: the same cipher mode with the key derived and the
+ * cipher looked up on every call, against the engine. Payload the size of a full
+ * google-services.json. Skipped unless run with ./gradlew test -Pbenchmark.
+ */
+public class QrCryptoBenchmark {
+
+    private static final String SECRET = "test-secret";
+    private static final byte[] AAD = {2};
+    private static final int WARMUP = 2_000;
+    private static final int RUNS = 10_000;
+
+    private final QrCryptoEngine crypto = new QrCryptoEngine(SECRET);
+    private final SecureRandom random = new SecureRandom();
+
+    @Before
+    public void onlyWhenRequested() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void gcm() throws Exception {
+        byte[] plain = payload(1500);
+        byte[] sink = null;
+
+        for (int i = 0; i < WARMUP; i++) sink = uncachedSeal(plain);
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) sink = uncachedSeal(plain);
+        double uncachedSeal = micros(start);
+        byte[] sealed = sink;
+        for (int i = 0; i < WARMUP; i++) sink = uncachedOpen(sealed);
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) sink = uncachedOpen(sealed);
+        double uncachedOpen = micros(start);
+        assertArrayEquals(plain, sink);
+
+        for (int i = 0; i < WARMUP; i++) sink = crypto.seal(plain, AAD);
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) sink = crypto.seal(plain, AAD);
+        double seal = micros(start);
+        sealed = sink;
+        for (int i = 0; i < WARMUP; i++) sink = crypto.open(sealed, 0, sealed.length, AAD);
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) sink = crypto.open(sealed, 0, sealed.length, AAD);
+        double open = micros(start);
+        assertArrayEquals(plain, sink);
+
+        System.out.printf("%d-byte GCM: uncached seal %.1f us, open %.1f us; engine seal %.1f us, open %.1f us%n",
+                plain.length, uncachedSeal, uncachedOpen, seal, open);
+    }
+
+    @Test
+    public void legacyEcb() throws Exception {
+        byte[] plain = payload(1500);
+        byte[] ecb = uncachedEcb(Cipher.ENCRYPT_MODE, plain);
+        byte[] sink = null;
+
+        for (int i = 0; i < WARMUP; i++) sink = uncachedEcb(Cipher.DECRYPT_MODE, ecb);
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) sink = uncachedEcb(Cipher.DECRYPT_MODE, ecb);
+        double uncached = micros(start);
+        assertArrayEquals(plain, sink);
+
+        for (int i = 0; i < WARMUP; i++) sink = crypto.legacyDecrypt(ecb);
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) sink = crypto.legacyDecrypt(ecb);
+        double cached = micros(start);
+        assertArrayEquals(plain, sink);
+
+        System.out.printf("%d-byte ECB decrypt: uncached %.1f us, engine %.1f us%n", plain.length, uncached, cached);
+    }
+
+    private static double micros(long start) {
+        return (System.nanoTime() - start) / 1e3 / RUNS;
+    }
+
+    private byte[] uncachedSeal(byte[] plain) throws GeneralSecurityException {
+        byte[] nonce = new byte[QrCryptoEngine.NONCE_BYTES];
+        random.nextBytes(nonce);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key(), new GCMParameterSpec(QrCryptoEngine.TAG_BYTES * 8, nonce));
+        cipher.updateAAD(AAD);
+        byte[] sealed = new byte[nonce.length + cipher.getOutputSize(plain.length)];
+        System.arraycopy(nonce, 0, sealed, 0, nonce.length);
+        cipher.doFinal(plain, 0, plain.length, sealed, nonce.length);
+        return sealed;
+    }
+
+    private static byte[] uncachedOpen(byte[] sealed) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key(),
+                new GCMParameterSpec(QrCryptoEngine.TAG_BYTES * 8, sealed, 0, QrCryptoEngine.NONCE_BYTES));
+        cipher.updateAAD(AAD);
+        return cipher.doFinal(sealed, QrCryptoEngine.NONCE_BYTES, sealed.length - QrCryptoEngine.NONCE_BYTES);
+    }
+
+    private static byte[] uncachedEcb(int mode, byte[] data) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(mode, key());
+        return cipher.doFinal(data);
+    }
+
+    /**
+     * SHA-256 of the secret, derived on every call as EncryptionHelper did before QrCryptoEngine.
+     */
+    private static SecretKeySpec key() throws GeneralSecurityException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(SECRET.getBytes(StandardCharsets.UTF_8));
+        return new SecretKeySpec(digest, "AES");
+    }
+
+    private static byte[] payload(int length) {
+        byte[] data = new byte[length];
+        Random random = new Random(length);
+        for (int i = 0; i < length; i++) data[i] = (byte) (' ' + random.nextInt(95));
+        return data;
+    }
+}
@@ -0,0 +1,142 @@
+package com.inout.app.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+public class QrCryptoEngineTest {
+
+    private static final String SECRET = "test-secret";
+    private static final byte[] AAD = {2};
+
+    private final QrCryptoEngine crypto = new QrCryptoEngine(SECRET);
+
+    @Test
+    public void sealOpenRoundTrip() throws Exception {
+        byte[] plain = payload(1500);
+        byte[] sealed = crypto.seal(plain, AAD);
+        assertEquals(QrCryptoEngine.NONCE_BYTES + plain.length + QrCryptoEngine.TAG_BYTES, sealed.length);
+        assertArrayEquals(plain, crypto.open(sealed, 0, sealed.length, AAD));
+
+        // At an offset, as behind the version byte
+        byte[] framed = new byte[sealed.length + 1];
+        System.arraycopy(sealed, 0, framed, 1, sealed.length);
+        assertArrayEquals(plain, crypto.open(framed, 1, sealed.length, AAD));
+
+        // Empty plaintext and no aad
+        byte[] empty = crypto.seal(new byte[0], null);
+        assertArrayEquals(new byte[0], crypto.open(empty, 0, empty.length, null));
+    }
+
+    @Test
+    public void everySealUsesAFreshNonce() throws Exception {
+        byte[] plain = payload(64);
+        byte[] a = crypto.seal(plain, AAD);
+        byte[] b = crypto.seal(plain, AAD);
+        assertNotEquals(Arrays.toString(Arrays.copyOf(a, QrCryptoEngine.NONCE_BYTES)),
+                Arrays.toString(Arrays.copyOf(b, QrCryptoEngine.NONCE_BYTES)));
+    }
+
+    @Test
+    public void tamperingIsRejected() throws Exception {
+        byte[] sealed = crypto.seal(payload(200), AAD);
+
+        assertRejected(sealed, new byte[]{3});                 // Other aad (format version)
+        assertRejected(sealed, null);                          // Missing aad
+        assertRejected(flip(sealed, 0), AAD);                  // Nonce
+        assertRejected(flip(sealed, QrCryptoEngine.NONCE_BYTES + 10), AAD);  // Ciphertext
+        assertRejected(flip(sealed, sealed.length - 1), AAD);  // Tag
+        assertRejected(Arrays.copyOf(sealed, sealed.length - 1), AAD);       // Truncated tag
+        assertRejected(new byte[QrCryptoEngine.NONCE_BYTES + QrCryptoEngine.TAG_BYTES - 1], AAD);
+
+        try {
+            new QrCryptoEngine("other-secret").open(sealed, 0, sealed.length, AAD);
+            fail("opened under another key");
+        } catch (GeneralSecurityException expected) {
+            // Foreign key
+        }
+    }
+
+    @Test
+    public void helperRoundTripsGcmPayloads() throws Exception {
+        String text = new String(payload(1500), StandardCharsets.UTF_8);
+        String encrypted = EncryptionHelper.encryptQrPayload(crypto, text);
+        assertEquals(2, Base64.getDecoder().decode(encrypted)[0]);
+        assertEquals(text, EncryptionHelper.decryptQrPayload(crypto, encrypted));
+        // A scanner may hand over a trailing line break
+        assertEquals(text, EncryptionHelper.decryptQrPayload(crypto, encrypted + "\n"));
+    }
+
+    @Test
+    public void helperFallsBackToLegacyEcb() throws Exception {
+        // Pre-GCM codes from older admin devices. Try many, so some start with the GCM version byte.
+        Random random = new Random(22);
+        int versionLookalikes = 0;
+        for (int i = 0; i < 2000; i++) {
+            // ECB: the first block must vary for the first byte to vary
+            String text = "{\"id\":" + random.nextInt() + ",\"companyName\":\"Acme\"}";
+            byte[] ecb = legacyEncrypt(text);
+            if (ecb[0] == 2) versionLookalikes++;
+            assertEquals(text, EncryptionHelper.decryptQrPayload(crypto, Base64.getEncoder().encodeToString(ecb)));
+        }
+        assertNotEquals("no ciphertext started with the version byte", 0, versionLookalikes);
+    }
+
+    @Test
+    public void helperRejectsTamperedGcmPayloads() throws Exception {
+        String text = new String(payload(300), StandardCharsets.UTF_8);
+        byte[] raw = Base64.getDecoder().decode(EncryptionHelper.encryptQrPayload(crypto, text));
+        raw[raw.length - 1] ^= 1;
+        try {
+            // The legacy fallback may not throw, but it can never produce the original text
+            assertNotEquals(text, EncryptionHelper.decryptQrPayload(crypto, Base64.getEncoder().encodeToString(raw)));
+        } catch (GeneralSecurityException expected) {
+            // Rejected by both formats
+        }
+    }
+
+    private void assertRejected(byte[] sealed, byte[] aad) {
+        try {
+            crypto.open(sealed, 0, sealed.length, aad);
+            fail("accepted tampered data");
+        } catch (GeneralSecurityException expected) {
+            // Tag mismatch or too short
+        }
+    }
+
+    private static byte[] flip(byte[] data, int index) {
+        byte[] copy = data.clone();
+        copy[index] ^= 0x01;
+        return copy;
+    }
+
+    private static byte[] payload(int length) {
+        byte[] data = new byte[length];
+        Random random = new Random(length);
+        for (int i = 0; i < length; i++) data[i] = (byte) (' ' + random.nextInt(95));
+        return data;
+    }
+
+    /**
+     * What older versions wrote: ECB under SHA-256 of the secret.
+     */
+    private static byte[] legacyEncrypt(String text) throws GeneralSecurityException {
+        byte[] key = MessageDigest.getInstance("SHA-256").digest(SECRET.getBytes(StandardCharsets.UTF_8));
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "AES"));
+        return cipher.doFinal(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
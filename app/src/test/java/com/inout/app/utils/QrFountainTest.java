@@ -0,0 +1,104 @@
+package com.inout.app.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class QrFountainTest {
+
+    private static final int TRIALS = 400;
+
+    @Test
+    public void fromFrameZeroNeedsExactlyKFrames() {
+        String code = code(21);
+        QrFountain.Encoder encoder = new QrFountain.Encoder(code, QrFountain.DEFAULT_BLOCK_BYTES);
+        assertEquals(21, encoder.getBlockCount());
+
+        QrFountain.Collector collector = new QrFountain.Collector();
+        for (int n = 0; n < 20; n++) assertTrue(collector.add(encoder.frame(n)));
+        assertFalse(collector.isComplete());
+        assertTrue(collector.add(encoder.frame(20)));
+        assertTrue(collector.isComplete());
+        assertEquals(code, collector.getCode());
+    }
+
+    @Test
+    public void lateJoinerNeedsAboutOneAndAHalfK() {
+        String code = code(21);
+        QrFountain.Encoder encoder = new QrFountain.Encoder(code, QrFountain.DEFAULT_BLOCK_BYTES);
+        Random random = new Random(23);
+
+        // Joins somewhere in the fountain part, then sees every frame
+        List<Integer> counts = new ArrayList<>();
+        for (int t = 0; t < TRIALS; t++) {
+            QrFountain.Collector collector = new QrFountain.Collector();
+            int n = 21 + random.nextInt(1000);
+            int frames = 0;
+            while (!collector.isComplete()) {
+                if (collector.add(encoder.frame(n++))) frames++;
+            }
+            assertEquals(code, collector.getCode());
+            counts.add(frames);
+        }
+        Collections.sort(counts);
+        double mean = 0;
+        for (int count : counts) mean += count;
+        mean /= TRIALS;
+        int p90 = counts.get(TRIALS * 9 / 10);
+        System.out.printf("K = 21, late joiner: mean %.1f frames (%.2f x K), p90 %d%n", mean, mean / 21, p90);
+
+        // The class documentation quotes these figures
+        assertTrue("mean " + mean, mean >= 1.3 * 21 && mean <= 1.7 * 21);
+        assertTrue("p90 " + p90, p90 <= 2 * 21);
+    }
+
+    @Test
+    public void framesInAnyOrderWithRepeats() {
+        String code = code(8);
+        QrFountain.Encoder encoder = new QrFountain.Encoder(code, QrFountain.DEFAULT_BLOCK_BYTES);
+        List<Integer> order = new ArrayList<>();
+        for (int n = 0; n < 200; n++) order.add(n);
+        Collections.shuffle(order, new Random(5));
+
+        QrFountain.Collector collector = new QrFountain.Collector();
+        for (int n : order) {
+            String frame = encoder.frame(n);
+            collector.add(frame);
+            assertFalse("repeat accepted", collector.add(frame));
+            if (collector.isComplete()) break;
+        }
+        assertTrue(collector.isComplete());
+        assertEquals(code, collector.getCode());
+    }
+
+    @Test
+    public void newCodeResetsTheCollector() {
+        String code = code(8);
+        QrFountain.Encoder old = new QrFountain.Encoder(code(8), QrFountain.DEFAULT_BLOCK_BYTES);
+        QrFountain.Encoder regenerated = new QrFountain.Encoder(code, QrFountain.DEFAULT_BLOCK_BYTES);
+
+        QrFountain.Collector collector = new QrFountain.Collector();
+        for (int n = 0; n < 7; n++) collector.add(old.frame(n));
+        assertEquals(7, collector.getSolvedCount());
+        for (int n = 0; n < 8; n++) collector.add(regenerated.frame(n));
+        assertTrue(collector.isComplete());
+        assertEquals(code, collector.getCode());
+    }
+
+    /**
+     * A compact-code body exactly k default blocks long (minus a partial last block).
+     */
+    private static String code(int k) {
+        byte[] message = new byte[k * QrFountain.DEFAULT_BLOCK_BYTES - 5];
+        new Random(k).nextBytes(message);
+        message[0] = 1;
+        return QrPayloadCodec.fromBinary(message);
+    }
+}
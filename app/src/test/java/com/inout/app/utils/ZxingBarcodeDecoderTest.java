@@ -0,0 +1,144 @@
+package com.inout.app.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class ZxingBarcodeDecoderTest {
+
+    // A 640x480 analysis frame whose Y plane rows are padded, as camera buffers often are
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int ROW_STRIDE = 704;
+
+    private final ZxingBarcodeDecoder decoder = new ZxingBarcodeDecoder(false);
+
+    @Test
+    public void decodesAWholeLumaPlane() throws Exception {
+        String content = compactCode(250);
+        byte[] luma = new byte[300 * 300];
+        Arrays.fill(luma, (byte) 255);
+        draw(luma, 300, content, 10, 10, 280, (byte) 0, (byte) 255);
+
+        assertEquals(content, decoder.decode(luma, 300, 300));
+    }
+
+    @Test
+    public void decodesAnOffsetCodeInACroppedCameraFrame() throws Exception {
+        String content = compactCode(250);
+        byte[] yPlane = cameraFrame(content, 230, 120, 300);
+
+        // The guide box, as QrScanPipeline.cropToGuide() copies it: rows out of the strided
+        // plane into an NV21 buffer with gray chroma. The code is off-centre inside it.
+        int left = 160;
+        int top = 60;
+        int w = 400;
+        int h = 400;
+        byte[] nv21 = crop(yPlane, left, top, w, h);
+
+        assertEquals(content, decoder.decode(nv21, w, h));
+
+        int runs = 50;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) decoder.decode(nv21, w, h);
+        System.out.printf("zxing: %dx%d crop decoded in %.2f ms%n", w, h, (System.nanoTime() - start) / 1e6 / runs);
+    }
+
+    @Test
+    public void cropCuttingThroughTheCodeFindsNothing() throws Exception {
+        byte[] yPlane = cameraFrame(compactCode(250), 230, 120, 300);
+        // Cuts off the right-hand finder patterns
+        byte[] nv21 = crop(yPlane, 100, 60, 280, 400);
+        assertNull(decoder.decode(nv21, 280, 400));
+    }
+
+    @Test
+    public void frameCallbackReportsFoundThenDone() throws Exception {
+        String content = compactCode(120);
+        byte[] nv21 = crop(cameraFrame(content, 200, 100, 260), 160, 60, 400, 400);
+        List<String> events = new ArrayList<>();
+        decoder.decode(new BarcodeDecoder.Frame(nv21, 400, 400, 90), recorder(events));
+        assertEquals(Arrays.asList("found " + content, "done null"), events);
+
+        // Gray frame: done without a result, not an error
+        events.clear();
+        byte[] blank = new byte[400 * 400 * 3 / 2];
+        Arrays.fill(blank, (byte) 128);
+        decoder.decode(new BarcodeDecoder.Frame(blank, 400, 400, 0), recorder(events));
+        assertEquals(Arrays.asList("done null"), events);
+    }
+
+    static BarcodeDecoder.Callback recorder(List<String> events) {
+        return new BarcodeDecoder.Callback() {
+            @Override
+            public void onFound(String rawValue) {
+                events.add("found " + rawValue);
+            }
+
+            @Override
+            public void onDone(Exception error) {
+                events.add("done " + (error == null ? null : error.getMessage()));
+            }
+        };
+    }
+
+    /**
+     * A registration-sized payload in the QR alphanumeric alphabet, like QrPayloadCodec output.
+     * The seed is fixed because ZXing misses a few percent of dense codes even when they are
+     * rendered cleanly (see ZxingBarcodeDecoder).
+     */
+    private static String compactCode(int bytes) {
+        byte[] data = new byte[bytes];
+        new Random(7).nextBytes(data);
+        return QrPayloadCodec.PREFIX + QrPayloadCodec.base45Encode(data);
+    }
+
+    /**
+     * A noisy, mid-gray Y plane with a low-contrast code of the given size at (x, y).
+     */
+    private static byte[] cameraFrame(String content, int x, int y, int size) throws Exception {
+        byte[] plane = new byte[ROW_STRIDE * HEIGHT];
+        Random random = new Random(3);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) plane[row * ROW_STRIDE + col] = (byte) (110 + random.nextInt(40));
+        }
+        draw(plane, ROW_STRIDE, content, x, y, size, (byte) 50, (byte) 200);
+        return plane;
+    }
+
+    private static void draw(byte[] plane, int stride, String content, int x, int y, int size,
+                             byte dark, byte light) throws Exception {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+        hints.put(EncodeHintType.MARGIN, 4);
+        BitMatrix matrix = new QRCodeWriter().encode(content, BarcodeFormat.QR_CODE, size, size, hints);
+        for (int row = 0; row < matrix.getHeight(); row++) {
+            for (int col = 0; col < matrix.getWidth(); col++) {
+                plane[(y + row) * stride + x + col] = matrix.get(col, row) ? dark : light;
+            }
+        }
+    }
+
+    private static byte[] crop(byte[] yPlane, int left, int top, int w, int h) {
+        byte[] nv21 = new byte[w * h + w * h / 2];
+        Arrays.fill(nv21, w * h, nv21.length, (byte) 128);
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(yPlane, (top + row) * ROW_STRIDE + left, nv21, row * w, w);
+        }
+        return nv21;
+    }
+}